@@ -0,0 +1,102 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicMatrix;
+import pAdicNumbers.PAdicVector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch operations: PAdicVector, PAdicMatrix and PAdic.invAll
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchBenchmark {
+    private static final int SIZE = 256;
+    private static final int DIM = 12;
+
+    @Param({"2", "3", "7", "101", "1000003"})
+    public int prime;
+
+    @Param({"20", "100", "1000", "10000"})
+    public int precision;
+
+    private PAdic[] a;
+    private PAdicVector u, v;
+    private PAdicMatrix m;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        PAdic.setPrecision(precision);
+        Random random = Inputs.random(prime, precision);
+        a = new PAdic[SIZE];
+        PAdic[] b = new PAdic[SIZE];
+        for (int i = 0; i < SIZE; i++){
+            a[i] = Inputs.unit(random, prime, precision);
+            b[i] = Inputs.unit(random, prime, precision);
+        }
+        u = new PAdicVector(a, prime);
+        v = new PAdicVector(b, prime);
+        PAdic[][] entries = new PAdic[DIM][DIM];
+        for (int i = 0; i < DIM; i++){
+            for (int j = 0; j < DIM; j++) entries[i][j] = Inputs.unit(random, prime, precision);
+        }
+        m = new PAdicMatrix(entries, prime);
+    }
+
+    @Benchmark
+    public PAdic[] invAll(){
+        return PAdic.invAll(a);
+    }
+
+    @Benchmark
+    public PAdicVector vectorMul(){
+        return u.mul(v);
+    }
+
+    @Benchmark
+    public PAdicVector vectorInv(){
+        return u.inv();
+    }
+
+    @Benchmark
+    public PAdic dot(){
+        return u.dot(v);
+    }
+
+    @Benchmark
+    public PAdic det(){
+        return m.det();
+    }
+
+    @Benchmark
+    public PAdicMatrix matrixInv(){
+        return m.inv();
+    }
+}
@@ -0,0 +1,86 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package benchmarks;
+
+import Poly.PAdicFactorizer;
+import Poly.Poly;
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicMathContext;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks
+ */
+final class Inputs {
+    private Inputs(){}
+
+    static Random random(int prime, int precision){
+        return new Random(31L * prime + precision);
+    }
+
+    /**
+     * @return unit of Z_p with precision random digits
+     */
+    static PAdic unit(Random random, int prime, int precision){
+        BigInteger mod = BigInteger.valueOf(prime).pow(precision);
+        BigInteger n = new BigInteger(mod.bitLength() + 16, random).mod(mod);
+        if (n.mod(BigInteger.valueOf(prime)).signum() == 0) n = n.add(BigInteger.ONE);
+        return new PAdic(n, 0, prime);
+    }
+
+    /**
+     * @return p^v * unit, with v = 1 (v = 2 for p = 2), i.e. argument for which exp converges
+     */
+    static PAdic small(Random random, int prime, int precision){
+        int v = prime == 2 ? 2 : 1;
+        return new PAdic(unit(random, prime, precision).getUnit(), v, prime);
+    }
+
+    /**
+     * @return x^2 - a with a simple root modulo p near 1
+     */
+    static Poly newtonPoly(int prime){
+        return new Poly(new long[]{prime == 2 ? -17 : -1 - prime, 0, 1});
+    }
+
+    /**
+     * @return x^degree + x + c with the least c > 0 for which f is squarefree modulo p,
+     * so that it can be both factored and searched for roots
+     */
+    static Poly squarefreePoly(int prime, int degree){
+        for (int c = 1; ; c++){
+            long[] coeff = new long[degree + 1];
+            coeff[0] = c;
+            coeff[1] = 1;
+            coeff[degree] = 1;
+            Poly f = new Poly(coeff);
+            try {
+                new PAdicMathContext(2).call(() -> PAdicFactorizer.factor(f, prime));
+                return f;
+            }
+            catch (RuntimeException e){
+                //not squarefree modulo p
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicPower;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single number operations of PAdic
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PAdicBenchmark {
+    @Param({"2", "3", "7", "101", "1000003"})
+    public int prime;
+
+    @Param({"20", "100", "1000", "10000"})
+    public int precision;
+
+    private PAdic a, b, small, square, principal, exponent;
+    private byte[] bytes;
+    private BigInteger power;
+    private PAdicPower fixedBase;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        PAdic.setPrecision(precision);
+        Random random = Inputs.random(prime, precision);
+        a = Inputs.unit(random, prime, precision);
+        b = Inputs.unit(random, prime, precision).mul(new PAdic(prime, prime));
+        small = Inputs.small(random, prime, precision);
+        square = a.mul(a);
+        principal = small.add(new PAdic(1, prime));
+        exponent = Inputs.unit(random, prime, precision);
+        bytes = a.toBytes();
+        power = new BigInteger(256, random);
+        fixedBase = new PAdicPower(a);
+        fixedBase.pow(power);
+    }
+
+    @Benchmark
+    public PAdic add(){
+        return a.add(b);
+    }
+
+    @Benchmark
+    public PAdic sub(){
+        return a.sub(b);
+    }
+
+    @Benchmark
+    public PAdic mul(){
+        return a.mul(b);
+    }
+
+    @Benchmark
+    public PAdic neg(){
+        return a.neg();
+    }
+
+    @Benchmark
+    public PAdic inv(){
+        return a.inv();
+    }
+
+    @Benchmark
+    public PAdic div(){
+        return b.div(a);
+    }
+
+    @Benchmark
+    public PAdic exp(){
+        return small.exp();
+    }
+
+    @Benchmark
+    public PAdic log(){
+        return a.log();
+    }
+
+    @Benchmark
+    public PAdic sqrt(){
+        return square.sqrt();
+    }
+
+    @Benchmark
+    public PAdic pow(){
+        return principal.pow(exponent);
+    }
+
+    @Benchmark
+    public PAdic powInteger(){
+        return a.pow(power);
+    }
+
+    @Benchmark
+    public PAdic powFixedBase(){
+        return fixedBase.pow(power);
+    }
+
+    @Benchmark
+    public int[] getDigits(){
+        return a.getDigits();
+    }
+
+    @Benchmark
+    public byte[] toBytes(){
+        return a.toBytes();
+    }
+
+    @Benchmark
+    public PAdic fromBytes(){
+        return PAdic.fromBytes(bytes);
+    }
+}
@@ -0,0 +1,94 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package benchmarks;
+
+import Poly.PAdicFactorizer;
+import Poly.PAdicPoly;
+import Poly.Poly;
+import org.openjdk.jmh.annotations.*;
+import pAdicNumbers.PAdic;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Root finding, factorization and evaluation of polynomials.
+ * factor and roots work on the same polynomial, so they can be compared directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PolyBenchmark {
+    @Param({"2", "3", "7", "101", "1000003"})
+    public int prime;
+
+    @Param({"20", "100", "1000", "10000"})
+    public int precision;
+
+    private Poly newtonPoly, f;
+    private PAdic x;
+    private PAdic[] points;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        PAdic.setPrecision(precision);
+        Random random = Inputs.random(prime, precision);
+        newtonPoly = Inputs.newtonPoly(prime);
+        f = Inputs.squarefreePoly(prime, 8);
+        x = Inputs.unit(random, prime, precision);
+        points = new PAdic[64];
+        for (int i = 0; i < points.length; i++) points[i] = Inputs.unit(random, prime, precision);
+    }
+
+    @Benchmark
+    public PAdic newton(){
+        return PAdic.Newton(newtonPoly, 1, prime);
+    }
+
+    @Benchmark
+    public PAdic ghl(){
+        return PAdic.GHL(newtonPoly, 10, prime);
+    }
+
+    @Benchmark
+    public List<PAdic> roots(){
+        return PAdic.roots(f, prime);
+    }
+
+    @Benchmark
+    public List<PAdicPoly> factor(){
+        return PAdicFactorizer.factor(f, prime);
+    }
+
+    @Benchmark
+    public PAdic evaluate(){
+        return f.evaluate(x);
+    }
+
+    @Benchmark
+    public PAdic[] evaluateAll(){
+        return f.evaluateAll(points);
+    }
+}
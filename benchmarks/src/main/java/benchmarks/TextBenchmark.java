@@ -0,0 +1,66 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pAdicNumbers.PAdic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Digit string conversions of PAdic. The text format supports p <= 31 only,
+ * so larger primes are not benchmarked (see PAdicBenchmark.toBytes for them).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TextBenchmark {
+    @Param({"2", "3", "7"})
+    public int prime;
+
+    @Param({"20", "100", "1000", "10000"})
+    public int precision;
+
+    private PAdic a;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        PAdic.setPrecision(precision);
+        Random random = Inputs.random(prime, precision);
+        a = Inputs.unit(random, prime, precision);
+        text = a.toString();
+    }
+
+    @Benchmark
+    public String toStringDigits(){
+        return a.toString();
+    }
+
+    @Benchmark
+    public PAdic parse(){
+        return new PAdic(text, prime);
+    }
+}
@@ -0,0 +1,92 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package Poly;
+
+import org.junit.jupiter.api.Test;
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicMathContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PAdicFactorizerTest {
+    private static final int PRECISION = 50;
+
+    /**
+     * Factors f and checks that lc(f) * product of factors = f modulo p^PRECISION
+     * @return degrees of the factors
+     */
+    private static int[] factorAndCheck(Poly f, int p){
+        return new PAdicMathContext(PRECISION).call(() -> {
+            List<PAdicPoly> factors = PAdicFactorizer.factor(f, p);
+            PAdicPoly product = new PAdicPoly(new PAdic[]{new PAdic(f.getCoeff(f.getDeg()), p)}, p);
+            int[] degrees = new int[factors.size()];
+            for (int i = 0; i < degrees.length; i++){
+                PAdicPoly g = factors.get(i);
+                assertEquals(new PAdic(1, p).getUnit(), g.getCoeff(g.getDeg()).getUnit(), "factor is monic");
+                assertEquals(0, g.getCoeff(g.getDeg()).getVal(), "factor is monic");
+                degrees[i] = g.getDeg();
+                product = product.mul(g);
+            }
+            assertTrue(product.sub(new PAdicPoly(f, p)).isZero(), "lc(f) * product of factors = f");
+            return degrees;
+        });
+    }
+
+    @Test
+    void quarticSplitsIntoQuadraticsOverZ3(){
+        int[] degrees = factorAndCheck(new Poly(new int[]{1, 0, 0, 0, 1}), 3);
+        assertEquals(2, degrees.length);
+        assertEquals(2, degrees[0]);
+        assertEquals(2, degrees[1]);
+    }
+
+    @Test
+    void quarticSplitsIntoQuadraticsOverZ5(){
+        int[] degrees = factorAndCheck(new Poly(new int[]{1, 0, 0, 0, 1}), 5);
+        assertEquals(2, degrees.length);
+        assertEquals(2, degrees[0]);
+        assertEquals(2, degrees[1]);
+    }
+
+    @Test
+    void factorsOverZ2(){
+        //(x^2 + x + 1)(x^3 + x^2 + 1) + 2
+        int[] degrees = factorAndCheck(new Poly(new int[]{3, 1, 2, 2, 2, 1}), 2);
+        assertEquals(2, degrees.length);
+        assertEquals(5, degrees[0] + degrees[1]);
+        assertEquals(6, degrees[0] * degrees[1]);
+    }
+
+    @Test
+    void nonMonicPolynomial(){
+        factorAndCheck(new Poly(new int[]{1, 0, 0, 0, 7}), 3);
+    }
+
+    @Test
+    void rejectsPolynomialNotSquarefreeModP(){
+        assertThrows(RuntimeException.class, () -> factorAndCheck(new Poly(new int[]{1, 0, 0, 0, 1}), 2));
+        assertThrows(RuntimeException.class, () -> factorAndCheck(new Poly(new int[]{1, -2, 1}), 5));
+    }
+}
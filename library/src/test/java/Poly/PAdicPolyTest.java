@@ -0,0 +1,66 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package Poly;
+
+import org.junit.jupiter.api.Test;
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicMathContext;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PAdicPolyTest {
+    private static final int P = 7;
+    private static final int N = 20; //above KRONECKER_THRESHOLD
+
+    private static PAdicPoly poly(int precision, long seed){
+        PAdic[] c = new PAdic[N];
+        BigInteger high = BigInteger.valueOf(P).pow(30);
+        for (int i = 0; i < N; i++) c[i] = new PAdic(high.add(BigInteger.valueOf(seed * (i + 1))), P);
+        return new PAdicMathContext(precision).call(() -> new PAdicPoly(c, P));
+    }
+
+    private static void assertSamePoly(PAdicPoly expected, PAdicPoly actual){
+        assertEquals(expected.getDeg(), actual.getDeg());
+        for (int i = 0; i <= expected.getDeg(); i++){
+            assertEquals(expected.getCoeff(i).getVal(), actual.getCoeff(i).getVal(), "val of c" + i);
+            assertEquals(expected.getCoeff(i).getUnit(), actual.getCoeff(i).getUnit(), "unit of c" + i);
+        }
+    }
+
+    @Test
+    void mulOfMixedPrecisionsMatchesLowerPrecision(){
+        PAdicPoly g = poly(10, 98765);
+        assertSamePoly(poly(10, 123456789).mul(g), poly(40, 123456789).mul(g));
+        assertSamePoly(g.mul(poly(10, 123456789)), g.mul(poly(40, 123456789)));
+    }
+
+    @Test
+    void divRemOfMixedPrecisionsMatchesLowerPrecision(){
+        PAdicPoly f = poly(40, 123456789).mul(poly(40, 555));
+        PAdicPoly f10 = poly(10, 123456789).mul(poly(10, 555));
+        PAdicPoly g = poly(10, 98765);
+        PAdicPoly[] expected = f10.divRem(g), actual = f.divRem(g);
+        assertSamePoly(expected[0], actual[0]);
+        assertSamePoly(expected[1], actual[1]);
+    }
+}
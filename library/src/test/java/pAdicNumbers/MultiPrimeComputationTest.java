@@ -0,0 +1,66 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import Poly.Poly;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiPrimeComputationTest {
+    private static final Poly F = new Poly(new int[]{2, 0, 1}); //< x^2 + 2
+
+    @Test
+    void resultsByPrime(){
+        Map<Integer, PAdic> roots = new MultiPrimeComputation<>(p -> PAdic.GHL(F, 5, p)).withPrecision(30).run(3, 11);
+        assertEquals(2, roots.size());
+        for (Map.Entry<Integer, PAdic> root : roots.entrySet()){
+            PAdic x = root.getValue();
+            assertEquals((int) root.getKey(), x.getP());
+            assertTrue(x.mul(x).add(new PAdic(2, x.getP())).getVal() >= 30);
+        }
+    }
+
+    @Test
+    void errorIsAttributedToItsPrime(){
+        for (ForkJoinPool pool : new ForkJoinPool[]{new ForkJoinPool(1), new ForkJoinPool(2)}){
+            RuntimeException e = assertThrows(RuntimeException.class,
+                () -> new MultiPrimeComputation<>(p -> PAdic.GHL(F, 5, p)).withPool(pool).run(3, 5));
+            assertEquals("Computation failed for p = 5", e.getMessage());
+            assertTrue(e.getCause() instanceof RootDoesntExist);
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void failuresOfAllPrimesAreReported(){
+        RuntimeException e = assertThrows(RuntimeException.class,
+            () -> new MultiPrimeComputation<>(p -> PAdic.GHL(F, 5, p)).withPool(new ForkJoinPool(2)).run(5, 7, 3));
+        assertEquals("Computation failed for p = 5", e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("Computation failed for p = 7", e.getSuppressed()[0].getMessage());
+    }
+}
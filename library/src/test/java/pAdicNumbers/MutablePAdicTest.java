@@ -0,0 +1,76 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import Poly.Poly;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MutablePAdicTest {
+    private static final int P = 5;
+
+    private static void assertSame(PAdic expected, PAdic actual){
+        assertEquals(expected.getAbsPrecision(), actual.getAbsPrecision(), "absolute precision");
+        assertEquals(expected.getVal(), actual.getVal(), "valuation");
+        assertEquals(expected.getUnit(), actual.getUnit(), "unit");
+    }
+
+    @Test
+    void toPAdicKeepsPrecision(){
+        PAdic x = new PAdic(BigInteger.valueOf(123456), 0, P, 4);
+        assertSame(x, new MutablePAdic(x).toPAdic());
+        assertSame(x.mul(x).add(x).sub(7), new MutablePAdic(x).mulInPlace(new MutablePAdic(x))
+                .addInPlace(new MutablePAdic(x)).addInPlace(-7).toPAdic());
+    }
+
+    @Test
+    void evaluateOfInexactArgumentIsInexact(){
+        PAdic x = new PAdic(BigInteger.valueOf(123456), 0, P, 4);
+        PAdic y = new Poly(new int[]{1, 1, 1}).evaluate(x);
+        assertSame(x.mul(x).add(x).add(1), y);
+        assertTrue(!y.isExact());
+    }
+
+    @Test
+    void vectorKeepsPrecision(){
+        PAdic x = new PAdic(BigInteger.valueOf(123456), 0, P, 4);
+        PAdic y = new PAdic(BigInteger.valueOf(777), 1, P, 9);
+        PAdicVector v = new PAdicVector(new PAdic[]{x, y}, P);
+        PAdicVector w = new PAdicVector(new PAdic[]{y, new PAdic(3, P)}, P);
+        assertSame(x.add(y), v.add(w).get(0));
+        assertSame(x.mul(y), v.mul(w).get(0));
+        assertSame(x.inv(), v.inv().get(0));
+        assertSame(x.mul(y).add(y.mul(3)), v.dot(w));
+    }
+
+    @Test
+    void lazyOfInexactDoesNotInventDigits(){
+        PAdic x = new PAdic(BigInteger.valueOf(123456), 0, P, 4);
+        LazyPAdic lazy = LazyPAdic.of(x);
+        assertEquals(x.getDigits()[3], lazy.digit(3));
+        assertThrows(RuntimeException.class, () -> lazy.digit(4));
+    }
+}
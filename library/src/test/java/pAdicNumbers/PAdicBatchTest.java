@@ -0,0 +1,108 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PAdicBatchTest {
+    private static String[] run(String input) throws IOException {
+        return run(input, false);
+    }
+
+    private static String[] run(String input, boolean inexact) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PAdicBatch(new PAdicMathContext(20), 10, 1, inexact).runText(
+                Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    void textJobWithLargePrimeIsAnError() throws IOException {
+        String[] lines = run("37 add 1 2\n5 add 1 2\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("error: "), lines[0]);
+        assertEquals(new PAdic(3, 5).toString(10), lines[1]);
+    }
+
+    @Test
+    void inexactTextJobsPrintKnownDigitsOnly() throws IOException {
+        String[] lines = run("7 div 12345 54321\n7 inv 123\n", true);
+        assertEquals(new PAdic("12345", 7).div(new PAdic("54321", 7)).toString(5), lines[0]);
+        assertEquals(new PAdic("123", 7).inv().toString(3), lines[1]);
+        assertEquals(10, run("7 inv 123\n")[0].length());
+    }
+
+    private static byte[] store(PAdic... a) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PAdicStore.Writer writer = new PAdicStore.Writer(Channels.newChannel(out))){
+            for (PAdic x : a) writer.write(x);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void binaryJobsWithMixedPrimesFailWithoutTrailer() throws IOException {
+        byte[] input = store(new PAdic(1, 5), new PAdic(2, 5), new PAdic(1, 5), new PAdic(2, 7));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RuntimeException e = assertThrows(RuntimeException.class, () -> new PAdicBatch(new PAdicMathContext(20), 10, 1)
+                .runBinary(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(out), PAdicBatch.Operation.ADD, null));
+        assertTrue(e.getMessage().contains("Job 1: Invalid field of argument"), e.getMessage());
+        //the output has no end marker, so reading it fails instead of yielding a short result
+        assertThrows(IOException.class, () -> {
+            try (PAdicStore.Reader reader = new PAdicStore.Reader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))){
+                while (reader.hasNext()) reader.next();
+            }
+            catch (UncheckedIOException u){
+                throw u.getCause();
+            }
+        });
+    }
+
+    @Test
+    void binaryJobsWriteCompleteStore() throws IOException {
+        byte[] input = store(new PAdic(1, 5), new PAdic(2, 5), new PAdic(3, 7), new PAdic(4, 7));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, new PAdicBatch(new PAdicMathContext(20), 10, 1)
+                .runBinary(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(out), PAdicBatch.Operation.ADD, null));
+        byte[] result = out.toByteArray();
+        ByteBuffer trailer = ByteBuffer.wrap(result, result.length - 8, 8).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2, trailer.getLong());
+        PAdicStore.Reader reader = new PAdicStore.Reader(Channels.newChannel(new ByteArrayInputStream(result)));
+        assertEquals(new PAdic(3, 5).toString(10), reader.next().toString(10));
+        assertEquals(new PAdic(7, 7).toString(10), reader.next().toString(10));
+        assertFalse(reader.hasNext());
+    }
+}
@@ -0,0 +1,138 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PAdicFunctionsTest {
+    private static final int PRECISION = 40;
+    private static final int[] PRIMES = {2, 3, 5, 7, 101};
+
+    /**
+     * Asserts that expected = actual modulo p^digits
+     */
+    private static void assertClose(PAdic expected, PAdic actual, int digits){
+        PAdic difference = actual.sub(expected);
+        assertTrue(difference.getVal() >= digits, actual + " != " + expected + " modulo p^" + digits);
+    }
+
+    private static PAdic unit(Random random, int p){
+        BigInteger n = new BigInteger(64, random);
+        if (n.mod(BigInteger.valueOf(p)).signum() == 0) n = n.add(BigInteger.ONE);
+        return new PAdic(n, p);
+    }
+
+    /**
+     * @return random x with v(x) = 1 (2 for p = 2), so exp converges
+     */
+    private static PAdic small(Random random, int p){
+        return new PAdic(unit(random, p).getUnit(), p == 2 ? 2 : 1, p);
+    }
+
+    @Test
+    void logOfExp(){
+        new PAdicMathContext(PRECISION).run(() -> {
+            Random random = new Random(1);
+            for (int p : PRIMES){
+                for (int i = 0; i < 5; i++){
+                    PAdic x = small(random, p);
+                    assertClose(x, x.exp().log(), PRECISION - 2);
+                }
+            }
+        });
+    }
+
+    @Test
+    void logOfProduct(){
+        new PAdicMathContext(PRECISION).run(() -> {
+            Random random = new Random(2);
+            for (int p : PRIMES){
+                for (int i = 0; i < 5; i++){
+                    PAdic x = unit(random, p), y = unit(random, p).mul(new PAdic(p, p));
+                    assertClose(x.log().add(y.log()), x.mul(y).log(), PRECISION - 2);
+                }
+            }
+        });
+    }
+
+    @Test
+    void sqrtSquared(){
+        new PAdicMathContext(PRECISION).run(() -> {
+            Random random = new Random(3);
+            for (int p : PRIMES){
+                for (int i = 0; i < 5; i++){
+                    PAdic x = unit(random, p);
+                    PAdic square = x.mul(x).mul(new PAdic(BigInteger.ONE, 2 * i, p));
+                    PAdic root = square.sqrt();
+                    assertClose(square, root.mul(root), PRECISION - 2);
+                }
+            }
+        });
+    }
+
+    @Test
+    void sqrtOfInexactSquare(){
+        new PAdicMathContext(PRECISION).run(() -> {
+            Random random = new Random(4);
+            for (int p : PRIMES){
+                PAdic x = unit(random, p);
+                PAdic square = x.mul(x).withPrecision(20);
+                PAdic root = square.sqrt();
+                assertFalse(root.isExact());
+                assertTrue(root.getAbsPrecision() <= 20);
+                PAdic back = root.mul(root);
+                assertEquals(Integer.MAX_VALUE, back.sub(square).getVal(), "sqrt(x)^2 = x up to precision");
+            }
+        });
+    }
+
+    @Test
+    void expOfInexactArgument(){
+        new PAdicMathContext(PRECISION).run(() -> {
+            PAdic x = new PAdic(BigInteger.valueOf(1234), 1, 3, 15);
+            PAdic y = x.exp();
+            assertEquals(15, y.getAbsPrecision());
+            assertClose(new PAdic(BigInteger.valueOf(3 * 1234), 3).exp(), y.withPrecision(PRECISION), 15);
+        });
+    }
+
+    @Test
+    void powMatchesRepeatedMultiplication(){
+        new PAdicMathContext(PRECISION).run(() -> {
+            Random random = new Random(5);
+            for (int p : PRIMES){
+                for (int i = 0; i < 5; i++){
+                    PAdic x = small(random, p).add(1);
+                    PAdic expected = new PAdic(1, p);
+                    for (int k = 0; k < 7; k++) expected = expected.mul(x);
+                    assertClose(expected, x.pow(new PAdic(7, p)), PRECISION - 2);
+                }
+            }
+        });
+    }
+}
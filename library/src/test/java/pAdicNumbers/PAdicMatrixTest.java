@@ -0,0 +1,193 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PAdicMatrixTest {
+    private static final int P = 7;
+    private static final int PRECISION = 30;
+
+    private static long[][] randomMatrix(long seed, int n){
+        Random random = new Random(seed);
+        long[][] a = new long[n][n];
+        for (int i = 0; i < n; i++){
+            for (int j = 0; j < n; j++) a[i][j] = random.nextInt(101) - 50;
+        }
+        return a;
+    }
+
+    private static PAdicMatrix matrix(long[][] a){
+        PAdic[][] entries = new PAdic[a.length][];
+        for (int i = 0; i < a.length; i++){
+            entries[i] = new PAdic[a[i].length];
+            for (int j = 0; j < a[i].length; j++) entries[i][j] = new PAdic(BigInteger.valueOf(a[i][j]), P);
+        }
+        return new PAdicMathContext(PRECISION).call(() -> new PAdicMatrix(entries, P));
+    }
+
+    /**
+     * Integer determinant by fraction-free (Bareiss) elimination
+     */
+    private static BigInteger det(long[][] a){
+        int n = a.length;
+        BigInteger[][] m = new BigInteger[n][n];
+        for (int i = 0; i < n; i++){
+            for (int j = 0; j < n; j++) m[i][j] = BigInteger.valueOf(a[i][j]);
+        }
+        BigInteger previous = BigInteger.ONE;
+        int sign = 1;
+        for (int k = 0; k < n - 1; k++){
+            if (m[k][k].signum() == 0) {
+                int r = k + 1;
+                while (r < n && m[r][k].signum() == 0) r++;
+                if (r == n) return BigInteger.ZERO;
+                BigInteger[] t = m[k];
+                m[k] = m[r];
+                m[r] = t;
+                sign = -sign;
+            }
+            for (int i = k + 1; i < n; i++){
+                for (int j = k + 1; j < n; j++){
+                    m[i][j] = m[i][j].multiply(m[k][k]).subtract(m[i][k].multiply(m[k][j])).divide(previous);
+                }
+            }
+            previous = m[k][k];
+        }
+        return sign < 0 ? m[n - 1][n - 1].negate() : m[n - 1][n - 1];
+    }
+
+    /**
+     * Asserts that x = y up to the precision of x
+     */
+    private static void assertEqualsUpToPrecision(PAdic expected, PAdic actual){
+        assertEquals(Integer.MAX_VALUE, actual.sub(expected).getVal(), actual + " != " + expected);
+    }
+
+    private static void assertIdentity(PAdicMatrix m){
+        for (int i = 0; i < m.getRows(); i++){
+            for (int j = 0; j < m.getCols(); j++) assertEqualsUpToPrecision(new PAdic(i == j ? 1 : 0, P), m.get(i, j));
+        }
+    }
+
+    @Test
+    void detMatchesIntegerDeterminant(){
+        for (long seed = 0; seed < 10; seed++){
+            long[][] a = randomMatrix(seed, 6);
+            PAdic det = matrix(a).det();
+            BigInteger expected = det(a);
+            assertEquals(expected.signum() == 0 ? Integer.MAX_VALUE : PAdicField.of(P).valuation(expected), det.getVal());
+            assertTrue(det.getAbsPrecision() - det.getVal() >= PRECISION / 2);
+            assertEqualsUpToPrecision(new PAdic(expected, P), det);
+        }
+    }
+
+    @Test
+    void inverseTimesMatrixIsIdentity(){
+        for (long seed = 0; seed < 10; seed++){
+            PAdicMatrix m = matrix(randomMatrix(seed, 6));
+            assertIdentity(m.mul(m.inv()));
+            assertIdentity(m.inv().mul(m));
+        }
+    }
+
+    @Test
+    void solveSatisfiesSystem(){
+        PAdicMatrix m = matrix(randomMatrix(1, 5));
+        PAdicMatrix b = matrix(new long[][]{{1, 2}, {3, 4}, {5, 6}, {7, 8}, {9, 10}});
+        PAdicMatrix residual = m.mul(m.solve(b));
+        for (int i = 0; i < 5; i++){
+            for (int j = 0; j < 2; j++) assertEqualsUpToPrecision(b.get(i, j), residual.get(i, j));
+        }
+    }
+
+    @Test
+    void rankOfSingularMatrix(){
+        long[][] a = randomMatrix(2, 4);
+        for (int j = 0; j < 4; j++) a[3][j] = a[0][j] + 2 * a[1][j];
+        assertEquals(3, matrix(a).rank());
+        assertEquals(4, matrix(randomMatrix(2, 4)).rank());
+        for (int j = 0; j < 4; j++) a[2][j] = 49 * a[0][j];
+        assertEquals(2, matrix(a).rank());
+    }
+
+    @Test
+    void smithFormExponents(){
+        //diag(7, 49, 1) in mixed order with a unimodular change of basis
+        long[][] a = {{49, 0, 0}, {0, 1, 0}, {7, 0, 7}};
+        PAdicMatrix d = matrix(a).smithForm();
+        int[] expected = {0, 1, 2};
+        for (int i = 0; i < 3; i++){
+            for (int j = 0; j < 3; j++){
+                if (i != j) assertEqualsUpToPrecision(new PAdic(0, P), d.get(i, j));
+            }
+            assertEquals(expected[i], d.get(i, i).getVal());
+            assertEquals(BigInteger.ONE, d.get(i, i).getUnit());
+        }
+        for (long seed = 0; seed < 10; seed++){
+            long[][] m = randomMatrix(seed, 6);
+            BigInteger det = det(m);
+            if (det.signum() == 0) continue;
+            PAdicMatrix s = matrix(m).smithForm();
+            int sum = 0;
+            for (int i = 0; i < 6; i++){
+                if (i > 0) assertTrue(s.get(i, i).getVal() >= s.get(i - 1, i - 1).getVal());
+                sum += s.get(i, i).getVal();
+            }
+            assertEquals(PAdicField.of(P).valuation(det), sum);
+        }
+    }
+
+    @Test
+    void hermiteFormIsEchelonWithReducedEntries(){
+        for (long seed = 0; seed < 10; seed++){
+            long[][] m = randomMatrix(seed, 5);
+            for (int j = 0; j < 5; j++) m[4][j] = 7 * m[0][j] - m[1][j];
+            PAdicMatrix h = matrix(m).hermiteForm();
+            int row = 0;
+            for (int c = 0; c < 5 && row < 5; c++){
+                PAdic pivot = h.get(row, c);
+                if (pivot.getVal() == Integer.MAX_VALUE) {
+                    for (int i = row; i < 5; i++) assertEquals(Integer.MAX_VALUE, h.get(i, c).getVal());
+                    continue;
+                }
+                assertEquals(BigInteger.ONE, pivot.getUnit());
+                for (int i = row + 1; i < 5; i++) assertEquals(Integer.MAX_VALUE, h.get(i, c).getVal());
+                BigInteger bound = PAdicField.of(P).pow(pivot.getVal());
+                for (int i = 0; i < row; i++){
+                    PAdic above = h.get(i, c);
+                    if (above.getVal() == Integer.MAX_VALUE) continue;
+                    BigInteger value = above.getUnit().multiply(PAdicField.of(P).pow(above.getVal()));
+                    assertTrue(above.getVal() >= 0 && value.compareTo(bound) < 0, "entry above pivot is reduced");
+                }
+                row++;
+            }
+            assertEquals(4, row);
+            assertEquals(matrix(m).rank(), row);
+        }
+    }
+}
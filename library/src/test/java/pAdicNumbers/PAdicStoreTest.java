@@ -0,0 +1,94 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PAdicStoreTest {
+    private static PAdic[] numbers(){
+        Random random = new Random(1);
+        PAdic[] a = new PAdic[200];
+        for (int i = 0; i < a.length; i++){
+            int p = i % 3 == 0 ? 2 : 7;
+            BigInteger n = new BigInteger(1 + random.nextInt(i % 10 == 0 ? 2000 : 100), random);
+            if (random.nextBoolean()) n = n.negate();
+            a[i] = i % 17 == 0 ? new PAdic(0, p) : new PAdic(n, p);
+            if (i % 5 == 0) a[i] = a[i].withPrecision(30);
+        }
+        return a;
+    }
+
+    private static void assertSame(PAdic expected, PAdic actual){
+        assertEquals(expected.getP(), actual.getP());
+        assertEquals(expected.getVal(), actual.getVal());
+        assertEquals(expected.getAbsPrecision(), actual.getAbsPrecision());
+        if (expected.getVal() != Integer.MAX_VALUE) assertEquals(expected.getUnit(), actual.getUnit());
+    }
+
+    /**
+     * Checks a view mapped in segments of given size against the written numbers
+     */
+    private static void check(int segmentSize, int overlap) throws IOException {
+        PAdic[] a = numbers();
+        Path path = Files.createTempFile("padic", ".store");
+        try {
+            PAdicStore.write(path, a);
+            try (PAdicStore.View view = new PAdicStore.View(path, segmentSize, overlap)){
+                assertEquals(a.length, view.size());
+                for (int i = 0; i < a.length; i++){
+                    assertSame(a[i], view.get(i));
+                    assertEquals(a[i].getVal(), view.getVal(i));
+                    ByteBuffer record = view.record(i);
+                    assertEquals(PAdicStore.encodedSize(a[i]), record.remaining());
+                    assertSame(a[i], PAdicStore.decode(record, 0));
+                    if (view.limbCount(i) > 0) assertEquals(record.getLong(16), view.limb(i, 0));
+                }
+            }
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void singleSegment() throws IOException {
+        check(1 << 30, 1 << 16);
+    }
+
+    @Test
+    void smallSegments() throws IOException {
+        check(64, 16);
+    }
+
+    @Test
+    void recordsWithinOverlap() throws IOException {
+        check(100, 1 << 12);
+    }
+}
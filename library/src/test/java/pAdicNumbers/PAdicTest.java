@@ -0,0 +1,66 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PAdicTest {
+    @Test
+    void powWithNegativeValuationOverflowThrows(){
+        PAdic x = new PAdic(BigInteger.ONE, -1, 3);
+        assertThrows(RuntimeException.class, () -> x.pow(BigInteger.ONE.shiftLeft(40)));
+    }
+
+    @Test
+    void powWithPositiveValuationOverflowIsZero(){
+        PAdic x = new PAdic(BigInteger.ONE, 1, 3);
+        assertEquals(Integer.MAX_VALUE, x.pow(BigInteger.ONE.shiftLeft(40)).getVal());
+    }
+
+    @Test
+    void parseInexactKeepsGivenDigits(){
+        PAdic a = PAdic.parseInexact("1234560123", 7), b = PAdic.parseInexact("6543210123", 7);
+        assertEquals(10, a.getAbsPrecision());
+        assertEquals(2, PAdic.parseInexact("12.3", 7).getAbsPrecision());
+        PAdic quotient = new PAdicMathContext(1000).call(() -> a.div(b));
+        assertEquals(10, quotient.getAbsPrecision());
+        assertEquals(new PAdic("1234560123", 7).div(new PAdic("6543210123", 7)).withPrecision(10).getUnit(), quotient.getUnit());
+        assertEquals(10, new PAdicMathContext(1000).call(() -> b.inv()).getAbsPrecision());
+    }
+
+    @Test
+    void parseWithPrecision(){
+        PAdic a = new PAdic("1234560123", 7, 4);
+        assertEquals(4, a.getAbsPrecision());
+        assertEquals(new PAdic("0123", 7).getUnit(), a.getUnit());
+        PAdic[] all = PAdic.parseAll(new CharSequence[]{"123", "4560"}, 7, true);
+        assertEquals(3, all[0].getAbsPrecision());
+        assertEquals(4, all[1].getAbsPrecision());
+        assertEquals(4, PAdic.parseAll(Stream.of("4560"), 7, true).findFirst().get().getAbsPrecision());
+        assertEquals(Integer.MAX_VALUE, PAdic.parseAll(new CharSequence[]{"123"}, 7)[0].getAbsPrecision());
+    }
+}
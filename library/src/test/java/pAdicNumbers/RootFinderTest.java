@@ -0,0 +1,46 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import Poly.Poly;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RootFinderTest {
+    @Test
+    void multipleRootAtHighPrecisionDoesNotOverflowStack(){
+        List<PAdic> roots = new PAdicMathContext(10000).call(() -> PAdic.roots(new Poly(new int[]{0, 0, 1}), 3));
+        assertEquals(1, roots.size());
+        assertEquals(Integer.MAX_VALUE, roots.get(0).getVal());
+    }
+
+    @Test
+    void multipleNonZeroRootAtHighPrecision(){
+        List<PAdic> roots = new PAdicMathContext(10000).call(() -> PAdic.roots(new Poly(new int[]{1, -2, 1}), 5));
+        assertEquals(1, roots.size());
+        assertEquals(0, roots.get(0).getVal());
+        assertEquals(BigInteger.ONE, roots.get(0).getUnit());
+    }
+}
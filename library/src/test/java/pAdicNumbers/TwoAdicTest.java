@@ -0,0 +1,165 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Randomized comparison of the p = 2 paths (TwoAdic) with the generic arithmetic
+ * modulo p^k, which is computed here directly with BigInteger division.
+ */
+class TwoAdicTest {
+    private static final BigInteger TWO = BigInteger.TWO;
+    private static final int[] PRECISIONS = {1, 20, 63, 64, 65, 100, 1000};
+
+    private static BigInteger random(Random random){
+        int bits = 1 + random.nextInt(random.nextBoolean() ? 70 : 2000);
+        BigInteger n = new BigInteger(bits, random).shiftLeft(random.nextInt(80));
+        if (n.signum() == 0) n = BigInteger.ONE;
+        return random.nextBoolean() ? n.negate() : n;
+    }
+
+    private static int valuation(BigInteger n){
+        int val = 0;
+        while (n.mod(TWO).signum() == 0){
+            n = n.divide(TWO);
+            val++;
+        }
+        return val;
+    }
+
+    /**
+     * @return first count digits of n, the least significant first
+     */
+    private static int[] digits(BigInteger n, int count){
+        int[] out = new int[count];
+        n = n.mod(TWO.pow(count));
+        for (int i = 0; i < count; i++){
+            BigInteger[] qr = n.divideAndRemainder(TWO);
+            out[i] = qr[1].intValue();
+            n = qr[0];
+        }
+        return out;
+    }
+
+    @Test
+    void construction(){
+        Random random = new Random(1);
+        for (int n : PRECISIONS){
+            new PAdicMathContext(n).run(() -> {
+                for (int i = 0; i < 200; i++){
+                    BigInteger x = random(random);
+                    PAdic a = new PAdic(x, 2);
+                    int val = valuation(x);
+                    BigInteger modulus = TWO.pow(n);
+                    assertEquals(val, a.getVal());
+                    assertEquals(x.divide(TWO.pow(val)).mod(modulus), a.getUnit().mod(modulus));
+                    assertEquals(x.mod(modulus), TwoAdic.reduce(x, n));
+                }
+            });
+        }
+    }
+
+    @Test
+    void inverse(){
+        Random random = new Random(2);
+        for (int n : PRECISIONS){
+            BigInteger modulus = TWO.pow(n);
+            new PAdicMathContext(n).run(() -> {
+                for (int i = 0; i < 200; i++){
+                    BigInteger x = random(random);
+                    BigInteger unit = x.divide(TWO.pow(valuation(x)));
+                    BigInteger expected = unit.modInverse(modulus);
+                    assertEquals(expected, TwoAdic.inverse(unit.mod(modulus), n));
+                    PAdic a = new PAdic(x, 2).inv();
+                    assertEquals(-valuation(x), a.getVal());
+                    assertEquals(expected, a.getUnit().mod(modulus));
+                }
+            });
+        }
+        for (int i = 0; i < 200; i++){
+            long a = random.nextLong() | 1;
+            assertEquals(BigInteger.valueOf(a).modInverse(TWO.pow(64)).longValue(), TwoAdic.inverse64(a));
+        }
+    }
+
+    @Test
+    void mulMod(){
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++){
+            int k = 1 + random.nextInt(62);
+            long a = random.nextLong() & ((1L << k) - 1), b = random.nextLong() & ((1L << k) - 1);
+            long expected = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(TWO.pow(k)).longValue();
+            assertEquals(expected, TwoAdic.mulMod(a, b, k));
+            assertEquals(expected, PAdicField.of(2).mulMod(a, b, k));
+        }
+    }
+
+    @Test
+    void digits(){
+        Random random = new Random(4);
+        for (int n : PRECISIONS){
+            new PAdicMathContext(n).run(() -> {
+                for (int i = 0; i < 100; i++){
+                    BigInteger x = random(random);
+                    int[] expected = digits(x, n);
+                    assertEquals(Arrays.toString(expected), Arrays.toString(PAdicField.of(2).digits(x, n)));
+                    PAdic a = new PAdic(x, 2);
+                    int[] unit = digits(x.divide(TWO.pow(valuation(x))), n);
+                    assertEquals(Arrays.toString(unit), Arrays.toString(a.getDigits()));
+                }
+            });
+        }
+    }
+
+    @Test
+    void parse(){
+        Random random = new Random(5);
+        for (int n : PRECISIONS){
+            new PAdicMathContext(n).run(() -> {
+                for (int i = 0; i < 100; i++){
+                    int length = 1 + random.nextInt(Math.max(1, n - 1));
+                    byte[] bits = new byte[length];
+                    StringBuilder s = new StringBuilder();
+                    BigInteger expected = BigInteger.ZERO;
+                    for (int j = 0; j < length; j++){
+                        bits[j] = (byte) (j == 0 || random.nextBoolean() ? 1 : 0);
+                        s.append(bits[j]);
+                        expected = expected.multiply(TWO).add(BigInteger.valueOf(bits[j]));
+                    }
+                    assertEquals(expected, TwoAdic.fromDigits(bits, 0, length));
+                    assertEquals(expected, PAdicField.of(2).fromDigits(bits, 0, length));
+                    PAdic a = new PAdic(s, 2);
+                    int val = valuation(expected);
+                    BigInteger modulus = TWO.pow(n);
+                    assertEquals(val, a.getVal());
+                    assertEquals(expected.divide(TWO.pow(val)).mod(modulus), a.getUnit().mod(modulus));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package Poly;
+
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicField;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Factorization of polynomials of Z[X] over Z_p.
+ * IMPLEMENTATION:
+ * Firstly f is factored modulo p into monic irreducible factors by
+ * distinct-degree factorization followed by Cantor-Zassenhaus (for p = 2
+ * trace based) equal-degree splitting. Then the factors are lifted by
+ * multifactor Hensel lifting: factors are arranged in a balanced tree and
+ * every node f = g * h is lifted together with s, t such that sg + th = 1,
+ * doubling the number of correct digits in each step (quadratic lifting).
+ * Requires p not dividing leading coefficient of f and f being squarefree modulo p.
+ */
+public final class PAdicFactorizer {
+    private PAdicFactorizer(){}
+
+    /**
+     * Factors f over Z_p to PAdic.getPrecision() digits
+     * @param f polynomial of degree at least 1
+     * @param p prime
+     * @return monic irreducible factors, f = lc(f) * product of factors
+     */
+    public static List<PAdicPoly> factor(Poly f, int p){
+        if (f.getDeg() < 1) throw new RuntimeException("Polynomial " + f + " has no factors of positive degree");
+        int precision = PAdic.getPrecision();
+        BigInteger mod = PAdicField.of(p).pow(precision);
+        BigInteger bigP = BigInteger.valueOf(p);
+        BigInteger[] c = new BigInteger[f.getDeg() + 1];
+        for (int i = 0; i < c.length; i++) c[i] = f.getCoeff(i);
+        if (c[c.length - 1].mod(bigP).signum() == 0)
+            throw new RuntimeException("Leading coefficient of " + f + " is divisible by " + p);
+        long[] reduced = new long[c.length];
+        for (int i = 0; i < c.length; i++) reduced[i] = c[i].mod(bigP).longValue();
+        reduced = monic(reduced, p);
+        if (gcd(reduced, derivative(reduced, p), p).length > 1)
+            throw new RuntimeException("Polynomial " + f + " is not squarefree modulo " + p);
+        List<long[]> factors = factorModP(reduced, p);
+        for (int i = 0; i < c.length; i++) c[i] = c[i].mod(mod);
+        List<BigInteger[]> lifted = new ArrayList<BigInteger[]>();
+        lift(c, factors, 0, factors.size(), p, precision, lifted);
+        List<PAdicPoly> out = new ArrayList<PAdicPoly>();
+        for (BigInteger[] g : lifted){
+            PAdic[] coeff = new PAdic[g.length];
+            for (int i = 0; i < g.length; i++) coeff[i] = new PAdic(g[i], p);
+            out.add(new PAdicPoly(coeff, p));
+        }
+        return out;
+    }
+
+    /**
+     * Lifts factorization of f modulo p given by factors[from..to) to precision digits,
+     * appends lifted monic factors to out.
+     */
+    private static void lift(BigInteger[] f, List<long[]> factors, int from, int to, int p, int precision, List<BigInteger[]> out){
+        BigInteger mod = PAdicField.of(p).pow(precision);
+        if (to - from == 1) {
+            BigInteger lcInv = f[f.length - 1].modInverse(mod);
+            BigInteger[] g = new BigInteger[f.length];
+            for (int i = 0; i < f.length; i++) g[i] = f[i].multiply(lcInv).mod(mod);
+            out.add(g);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        long[] g = {f[f.length - 1].mod(BigInteger.valueOf(p)).longValue()};
+        for (int i = from; i < mid; i++) g = mul(g, factors.get(i), p);
+        long[] h = {1};
+        for (int i = mid; i < to; i++) h = mul(h, factors.get(i), p);
+        long[][] st = xgcd(g, h, p);
+        BigInteger[][] lifted = henselLift(f, big(g), big(h), big(st[0]), big(st[1]), p, precision);
+        lift(lifted[0], factors, from, mid, p, precision, out);
+        lift(lifted[1], factors, mid, to, p, precision, out);
+    }
+
+    /**
+     * Quadratic Hensel lifting (Modern Computer Algebra, Algorithm 15.10).
+     * Given f = gh and sg + th = 1 modulo p, h monic, returns {g, h} with
+     * f = gh modulo p^precision. Every step lifts from p^k to p^(min(2k, precision)).
+     */
+    private static BigInteger[][] henselLift(BigInteger[] f, BigInteger[] g, BigInteger[] h, BigInteger[] s, BigInteger[] t, int p, int precision){
+        PAdicField field = PAdicField.of(p);
+        for (int k = 1; k < precision; ){
+            k = Math.min(2 * k, precision);
+            BigInteger m = field.pow(k);
+            BigInteger[] fm = reduce(f, m);
+            BigInteger[] e = sub(fm, PAdicPoly.mulMod(g, h, m), m);
+            BigInteger[][] qr = divRemMonic(PAdicPoly.mulMod(s, e, m), h, m);
+            BigInteger[] g1 = add(g, add(PAdicPoly.mulMod(t, e, m), PAdicPoly.mulMod(qr[0], g, m), m), m);
+            BigInteger[] h1 = add(h, qr[1], m);
+            if (k < precision) {
+                BigInteger[] b = add(PAdicPoly.mulMod(s, g1, m), PAdicPoly.mulMod(t, h1, m), m);
+                b = sub(b, new BigInteger[]{BigInteger.ONE}, m);
+                BigInteger[][] cd = divRemMonic(PAdicPoly.mulMod(s, b, m), h1, m);
+                s = sub(s, cd[1], m);
+                t = sub(t, add(PAdicPoly.mulMod(t, b, m), PAdicPoly.mulMod(cd[0], g1, m), m), m);
+            }
+            g = trim(g1);
+            h = trim(h1);
+        }
+        return new BigInteger[][]{g, h};
+    }
+
+    private static BigInteger[] big(long[] a){
+        BigInteger[] out = new BigInteger[a.length];
+        for (int i = 0; i < a.length; i++) out[i] = BigInteger.valueOf(a[i]);
+        return out;
+    }
+
+    private static BigInteger[] trim(BigInteger[] a){
+        int n = a.length;
+        while (n > 0 && a[n - 1].signum() == 0) n--;
+        return n == a.length ? a : Arrays.copyOf(a, n);
+    }
+
+    private static BigInteger[] reduce(BigInteger[] a, BigInteger m){
+        BigInteger[] out = new BigInteger[a.length];
+        for (int i = 0; i < a.length; i++) out[i] = a[i].mod(m);
+        return trim(out);
+    }
+
+    private static BigInteger[] add(BigInteger[] a, BigInteger[] b, BigInteger m){
+        BigInteger[] out = new BigInteger[Math.max(a.length, b.length)];
+        for (int i = 0; i < out.length; i++){
+            BigInteger x = i < a.length ? a[i] : BigInteger.ZERO;
+            BigInteger y = i < b.length ? b[i] : BigInteger.ZERO;
+            out[i] = x.add(y).mod(m);
+        }
+        return trim(out);
+    }
+
+    private static BigInteger[] sub(BigInteger[] a, BigInteger[] b, BigInteger m){
+        BigInteger[] out = new BigInteger[Math.max(a.length, b.length)];
+        for (int i = 0; i < out.length; i++){
+            BigInteger x = i < a.length ? a[i] : BigInteger.ZERO;
+            BigInteger y = i < b.length ? b[i] : BigInteger.ZERO;
+            out[i] = x.subtract(y).mod(m);
+        }
+        return trim(out);
+    }
+
+    /**
+     * Division by monic polynomial modulo m
+     * @return {quotient, remainder}
+     */
+    private static BigInteger[][] divRemMonic(BigInteger[] a, BigInteger[] b, BigInteger m){
+        a = trim(a);
+        int db = b.length - 1;
+        if (a.length - 1 < db) return new BigInteger[][]{new BigInteger[0], a};
+        BigInteger[] rem = a.clone();
+        BigInteger[] q = new BigInteger[a.length - db];
+        for (int i = q.length - 1; i >= 0; i--){
+            q[i] = rem[i + db].mod(m);
+            if (q[i].signum() == 0) continue;
+            for (int j = 0; j <= db; j++) rem[i + j] = rem[i + j].subtract(q[i].multiply(b[j]));
+        }
+        BigInteger[] r = new BigInteger[db];
+        for (int i = 0; i < db; i++) r[i] = rem[i].mod(m);
+        return new BigInteger[][]{trim(q), trim(r)};
+    }
+
+    /**
+     * Returns monic irreducible factors of squarefree monic polynomial modulo p
+     * @param f coefficients from a_0 to a_n in [0, p)
+     * @param p prime
+     */
+    static List<long[]> factorModP(long[] f, int p){
+        List<long[]> out = new ArrayList<long[]>();
+        Random random = new Random(p);
+        long[] x = {0, 1};
+        long[] rest = f;
+        long[] power = x;
+        for (int d = 1; 2 * d <= rest.length - 1; d++){
+            power = powMod(power, BigInteger.valueOf(p), rest, p);
+            long[] g = gcd(rest, sub(power, x, p), p);
+            if (g.length > 1) {
+                equalDegree(g, d, p, random, out);
+                rest = divRem(rest, g, p)[0];
+                power = divRem(power, rest, p)[1];
+            }
+        }
+        if (rest.length > 1) out.add(monic(rest, p));
+        return out;
+    }
+
+    /**
+     * Splits product of monic irreducible factors of degree d (Cantor-Zassenhaus)
+     */
+    private static void equalDegree(long[] g, int d, int p, Random random, List<long[]> out){
+        if (g.length - 1 == d) { out.add(monic(g, p)); return; }
+        while (true){
+            long[] a = new long[g.length - 1];
+            for (int i = 0; i < a.length; i++) a[i] = random.nextInt(p);
+            a = trim(a);
+            if (a.length < 2) continue;
+            long[] b;
+            if (p == 2) {
+                //trace map a + a^2 + ... + a^(2^(d - 1))
+                b = a;
+                long[] square = a;
+                for (int i = 1; i < d; i++){
+                    square = powMod(square, BigInteger.TWO, g, p);
+                    b = add(b, square, p);
+                }
+            }
+            else {
+                BigInteger e = BigInteger.valueOf(p).pow(d).subtract(BigInteger.ONE).shiftRight(1);
+                b = sub(powMod(a, e, g, p), new long[]{1}, p);
+            }
+            long[] h = gcd(g, b, p);
+            if (h.length > 1 && h.length < g.length) {
+                equalDegree(h, d, p, random, out);
+                equalDegree(divRem(g, h, p)[0], d, p, random, out);
+                return;
+            }
+        }
+    }
+
+    private static long[] trim(long[] a){
+        int n = a.length;
+        while (n > 0 && a[n - 1] == 0) n--;
+        return n == a.length ? a : Arrays.copyOf(a, n);
+    }
+
+    private static long inverse(long a, int p){
+        return BigInteger.valueOf(a).modInverse(BigInteger.valueOf(p)).longValue();
+    }
+
+    private static long[] monic(long[] a, int p){
+        a = trim(a);
+        long lcInv = inverse(a[a.length - 1], p);
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) out[i] = a[i] * lcInv % p;
+        return out;
+    }
+
+    private static long[] add(long[] a, long[] b, int p){
+        long[] out = new long[Math.max(a.length, b.length)];
+        for (int i = 0; i < out.length; i++) out[i] = ((i < a.length ? a[i] : 0) + (i < b.length ? b[i] : 0)) % p;
+        return trim(out);
+    }
+
+    private static long[] sub(long[] a, long[] b, int p){
+        long[] out = new long[Math.max(a.length, b.length)];
+        for (int i = 0; i < out.length; i++) out[i] = Math.floorMod((i < a.length ? a[i] : 0) - (i < b.length ? b[i] : 0), (long) p);
+        return trim(out);
+    }
+
+    private static long[] mul(long[] a, long[] b, int p){
+        if (a.length == 0 || b.length == 0) return new long[0];
+        long[] out = new long[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++){
+            if (a[i] == 0) continue;
+            for (int j = 0; j < b.length; j++) out[i + j] = (out[i + j] + a[i] * b[j]) % p;
+        }
+        return trim(out);
+    }
+
+    /**
+     * @return {quotient, remainder} of division modulo p, b non-zero
+     */
+    private static long[][] divRem(long[] a, long[] b, int p){
+        a = trim(a);
+        b = trim(b);
+        int db = b.length - 1;
+        if (a.length - 1 < db) return new long[][]{new long[0], a};
+        long lcInv = inverse(b[db], p);
+        long[] rem = a.clone();
+        long[] q = new long[a.length - db];
+        for (int i = q.length - 1; i >= 0; i--){
+            q[i] = rem[i + db] * lcInv % p;
+            if (q[i] == 0) continue;
+            for (int j = 0; j <= db; j++) rem[i + j] = Math.floorMod(rem[i + j] - q[i] * b[j], (long) p);
+        }
+        return new long[][]{trim(q), trim(Arrays.copyOf(rem, db))};
+    }
+
+    /**
+     * @return monic gcd (empty array if both are zero)
+     */
+    private static long[] gcd(long[] a, long[] b, int p){
+        a = trim(a);
+        b = trim(b);
+        while (b.length > 0){
+            long[] r = divRem(a, b, p)[1];
+            a = b;
+            b = r;
+        }
+        if (a.length == 0) return a;
+        return monic(a, p);
+    }
+
+    /**
+     * @return {s, t} with sa + tb = 1 modulo p, for coprime a, b
+     */
+    private static long[][] xgcd(long[] a, long[] b, int p){
+        long[] r0 = trim(a), r1 = trim(b);
+        long[] s0 = {1}, s1 = {}, t0 = {}, t1 = {1};
+        while (r1.length > 0){
+            long[][] qr = divRem(r0, r1, p);
+            long[] r2 = qr[1];
+            long[] s2 = sub(s0, mul(qr[0], s1, p), p);
+            long[] t2 = sub(t0, mul(qr[0], t1, p), p);
+            r0 = r1; r1 = r2;
+            s0 = s1; s1 = s2;
+            t0 = t1; t1 = t2;
+        }
+        long lcInv = inverse(r0[r0.length - 1], p);
+        long[] s = mul(s0, new long[]{lcInv}, p);
+        long[] t = mul(t0, new long[]{lcInv}, p);
+        return new long[][]{s, t};
+    }
+
+    private static long[] derivative(long[] a, int p){
+        if (a.length <= 1) return new long[0];
+        long[] out = new long[a.length - 1];
+        for (int i = 1; i < a.length; i++) out[i - 1] = i % p * a[i] % p;
+        return trim(out);
+    }
+
+    /**
+     * @return a^e modulo m and p
+     */
+    private static long[] powMod(long[] a, BigInteger e, long[] m, int p){
+        long[] out = {1};
+        long[] base = divRem(a, m, p)[1];
+        for (int i = e.bitLength() - 1; i >= 0; i--){
+            out = divRem(mul(out, out, p), m, p)[1];
+            if (e.testBit(i)) out = divRem(mul(out, base, p), m, p)[1];
+        }
+        return out;
+    }
+}
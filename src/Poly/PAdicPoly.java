@@ -0,0 +1,383 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package Poly;
+
+import pAdicNumbers.FieldError;
+import pAdicNumbers.MutablePAdic;
+import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicField;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+
+/**
+ * Class representing elements of Q_p[X].
+ * The polynomial is represented as p^(val) * (c_0 + c_1 x + ... + c_n x^n)
+ * where c_i are integers modulo p^N (N is the precision at the time of
+ * creation) and at least one of them is not divisible by p.
+ * (val = Integer.MAX_VALUE for zero polynomial)
+ * Multiplication uses Kronecker substitution: coefficients are packed into
+ * one BigInteger, so the product is computed by a single (Karatsuba /
+ * Toom-Cook) BigInteger multiplication.
+ */
+public class PAdicPoly {
+    private static final int KRONECKER_THRESHOLD = 16;
+
+    private final int p;
+    private final int precision;
+    private final BigInteger mod; //< p^precision
+    private final int val;
+    private final BigInteger[] coeff; //< coeffs of polynomial from c_0 to c_n
+    private final int deg;
+
+    /**
+     * Constructs polynomial with given coefficients
+     * @param coeff coefficients from a_0 to a_n
+     * @param p prime
+     */
+    public PAdicPoly(PAdic[] coeff, int p){
+        this.p = p;
+        this.precision = PAdic.getPrecision();
+        this.mod = PAdicField.of(p).pow(precision);
+        int minVal = Integer.MAX_VALUE;
+        for (PAdic c : coeff){
+            if (c.getP() != p) throw new FieldError(p, c.getP());
+            minVal = Math.min(minVal, c.getVal());
+        }
+        BigInteger[] c = new BigInteger[coeff.length];
+        for (int i = 0; i < c.length; i++){
+            int shift = coeff[i].getVal() == Integer.MAX_VALUE ? precision : coeff[i].getVal() - minVal;
+            c[i] = coeff[i].getUnit().multiply(shift(shift));
+        }
+        int[] norm = new int[2];
+        this.coeff = normalize(c, norm);
+        this.deg = norm[0];
+        this.val = minVal == Integer.MAX_VALUE || deg < 0 ? Integer.MAX_VALUE : minVal + norm[1];
+    }
+
+    /**
+     * Constructs image of given polynomial of Z[X] in Q_p[X]
+     * @param f polynomial
+     * @param p prime
+     */
+    public PAdicPoly(Poly f, int p){
+        this(p, PAdic.getPrecision(), 0, coefficients(f));
+    }
+
+    private static BigInteger[] coefficients(Poly f){
+        BigInteger[] c = new BigInteger[f.getDeg() + 1];
+        for (int i = 0; i < c.length; i++) c[i] = f.getCoeff(i);
+        return c;
+    }
+
+    /**
+     * Constructs p^(val) * (c_0 + ... + c_n x^n), c_i are arbitrary integers
+     */
+    private PAdicPoly(int p, int precision, int val, BigInteger[] c){
+        this.p = p;
+        this.precision = precision;
+        this.mod = PAdicField.of(p).pow(precision);
+        int[] norm = new int[2];
+        this.coeff = normalize(c, norm);
+        this.deg = norm[0];
+        this.val = deg < 0 || val == Integer.MAX_VALUE ? Integer.MAX_VALUE : val + norm[1];
+    }
+
+    private BigInteger shift(int k){
+        if (k >= precision) return BigInteger.ZERO;
+        return PAdicField.of(p).pow(k);
+    }
+
+    /**
+     * Reduces coefficients modulo p^N and divides them by the highest common power of p.
+     * @param norm output: norm[0] = degree, norm[1] = exponent of the power of p taken out
+     */
+    private BigInteger[] normalize(BigInteger[] c, int[] norm){
+        int deg = -1;
+        BigInteger[] reduced = new BigInteger[c.length];
+        for (int i = 0; i < c.length; i++){
+            reduced[i] = c[i].mod(mod);
+            if (reduced[i].signum() != 0) deg = i;
+        }
+        norm[0] = deg;
+        if (deg < 0) return new BigInteger[0];
+        int k = Integer.MAX_VALUE;
+        for (int i = 0; i <= deg; i++) if (reduced[i].signum() != 0) k = Math.min(k, PAdicField.of(p).valuation(reduced[i]));
+        BigInteger[] out = new BigInteger[deg + 1];
+        BigInteger power = shift(k);
+        for (int i = 0; i <= deg; i++) out[i] = k == 0 ? reduced[i] : reduced[i].divide(power);
+        norm[1] = k;
+        return out;
+    }
+
+    public boolean isZero(){
+        return deg < 0;
+    }
+
+    public int getDeg(){
+        return deg;
+    }
+
+    public int getP(){
+        return p;
+    }
+
+    /**
+     * @param i index
+     * @return i-th coefficient (0 if i > deg)
+     */
+    public PAdic getCoeff(int i){
+        if (i < 0 || i > deg) return new PAdic(0, p);
+        PAdic c = new PAdic(coeff[i], p);
+        if (c.getVal() == Integer.MAX_VALUE) return c;
+        return new PAdic(c.getUnit(), c.getVal() + val, p);
+    }
+
+    private void check(PAdicPoly a){
+        if (p != a.p) throw new FieldError(p, a.p);
+    }
+
+    public PAdicPoly add(PAdicPoly a){
+        check(a);
+        if (a.isZero()) return this;
+        if (this.isZero()) return a;
+        int n = Math.min(precision, a.precision);
+        PAdicPoly low = val <= a.val ? this : a;
+        PAdicPoly high = val <= a.val ? a : this;
+        BigInteger power = low.shift((int) Math.min((long) high.val - low.val, n));
+        BigInteger[] sum = new BigInteger[Math.max(low.deg, high.deg) + 1];
+        for (int i = 0; i < sum.length; i++){
+            BigInteger x = i <= low.deg ? low.coeff[i] : BigInteger.ZERO;
+            if (i <= high.deg) x = x.add(high.coeff[i].multiply(power));
+            sum[i] = x;
+        }
+        return new PAdicPoly(p, n, low.val, sum);
+    }
+
+    public PAdicPoly neg(){
+        BigInteger[] c = new BigInteger[deg + 1];
+        for (int i = 0; i <= deg; i++) c[i] = coeff[i].negate();
+        return new PAdicPoly(p, precision, val, c);
+    }
+
+    public PAdicPoly sub(PAdicPoly a){
+        return this.add(a.neg());
+    }
+
+    public PAdicPoly mul(PAdicPoly a){
+        check(a);
+        int n = Math.min(precision, a.precision);
+        if (this.isZero() || a.isZero()) return new PAdicPoly(p, n, 0, new BigInteger[0]);
+        BigInteger m = PAdicField.of(p).pow(n);
+        return new PAdicPoly(p, n, val + a.val, mulMod(reduced(n, m), a.reduced(n, m), m));
+    }
+
+    /**
+     * @return coefficients reduced to [0, m), where m = p^n and n <= precision
+     */
+    private BigInteger[] reduced(int n, BigInteger m){
+        if (n >= precision) return coeff;
+        BigInteger[] c = new BigInteger[coeff.length];
+        for (int i = 0; i < c.length; i++) c[i] = coeff[i].mod(m);
+        return c;
+    }
+
+    /**
+     * Returns product of polynomials with integer coefficients modulo mod
+     * @param a coefficients in [0, mod)
+     * @param b coefficients in [0, mod)
+     * @param mod modulus
+     * @return coefficients of the product in [0, mod)
+     */
+    static BigInteger[] mulMod(BigInteger[] a, BigInteger[] b, BigInteger mod){
+        if (a.length == 0 || b.length == 0) return new BigInteger[0];
+        BigInteger[] out = new BigInteger[a.length + b.length - 1];
+        if (Math.min(a.length, b.length) < KRONECKER_THRESHOLD) {
+            for (int k = 0; k < out.length; k++) out[k] = BigInteger.ZERO;
+            for (int i = 0; i < a.length; i++){
+                if (a[i].signum() == 0) continue;
+                for (int j = 0; j < b.length; j++) out[i + j] = out[i + j].add(a[i].multiply(b[j]));
+            }
+            for (int k = 0; k < out.length; k++) out[k] = out[k].mod(mod);
+            return out;
+        }
+        //every coefficient of the product is smaller than min(len) * mod^2
+        int bits = 2 * mod.bitLength() + 33 - Integer.numberOfLeadingZeros(Math.min(a.length, b.length));
+        int slot = (bits + 7) / 8;
+        byte[] product = pack(a, slot).multiply(pack(b, slot)).toByteArray();
+        for (int k = 0; k < out.length; k++){
+            int end = product.length - k * slot;
+            int start = Math.max(end - slot, 0);
+            if (end <= 0) { out[k] = BigInteger.ZERO; continue; }
+            byte[] part = new byte[end - start];
+            System.arraycopy(product, start, part, 0, end - start);
+            out[k] = new BigInteger(1, part).mod(mod);
+        }
+        return out;
+    }
+
+    /**
+     * @return sum of a_i * 2^(8 * slot * i)
+     */
+    private static BigInteger pack(BigInteger[] a, int slot){
+        byte[] buffer = new byte[a.length * slot];
+        for (int i = 0; i < a.length; i++){
+            byte[] bytes = a[i].toByteArray();
+            int length = Math.min(bytes.length, slot); //skips sign byte
+            int end = buffer.length - i * slot;
+            System.arraycopy(bytes, bytes.length - length, buffer, end - length, length);
+        }
+        return new BigInteger(1, buffer);
+    }
+
+    /**
+     * Returns quotient and remainder of division by given polynomial.
+     * IMPLEMENTATION:
+     * If leading coefficient of a is a unit (after taking out common power of p),
+     * quotient is computed from reversed polynomials: rev(q) = rev(this) / rev(a)
+     * mod x^(n - m + 1), with the power series inverse computed by Newton's
+     * iteration, so the cost is a few multiplications. Otherwise schoolbook
+     * long division with PAdic coefficients is used.
+     * @param a non-zero polynomial
+     * @return array {quotient, remainder}
+     */
+    public PAdicPoly[] divRem(PAdicPoly a){
+        check(a);
+        if (a.isZero()) throw new RuntimeException("Division by zero");
+        int n = Math.min(precision, a.precision);
+        PAdicPoly zero = new PAdicPoly(p, n, 0, new BigInteger[0]);
+        if (deg < a.deg) return new PAdicPoly[]{zero, this};
+        if (a.coeff[a.deg].mod(BigInteger.valueOf(p)).signum() == 0) return longDivision(a);
+        BigInteger m = PAdicField.of(p).pow(n);
+        BigInteger[] f = reduced(n, m), g = a.reduced(n, m);
+        int k = deg - a.deg + 1;
+        BigInteger[] revA = new BigInteger[Math.min(k, a.deg + 1)];
+        for (int i = 0; i < revA.length; i++) revA[i] = g[a.deg - i];
+        BigInteger[] revF = new BigInteger[k];
+        for (int i = 0; i < k; i++) revF[i] = f[deg - i];
+        BigInteger[] revQ = truncate(mulMod(revF, seriesInverse(revA, k, m), m), k);
+        BigInteger[] q = new BigInteger[k];
+        for (int i = 0; i < k; i++) q[i] = i < revQ.length ? revQ[k - 1 - i] : BigInteger.ZERO;
+        PAdicPoly quotient = new PAdicPoly(p, n, val - a.val, q);
+        return new PAdicPoly[]{quotient, this.sub(a.mul(quotient)).truncate(a.deg)};
+    }
+
+    private PAdicPoly[] longDivision(PAdicPoly a){
+        PAdic[] rem = new PAdic[deg + 1];
+        for (int i = 0; i <= deg; i++) rem[i] = getCoeff(i);
+        PAdic[] divisor = new PAdic[a.deg + 1];
+        for (int i = 0; i <= a.deg; i++) divisor[i] = a.getCoeff(i);
+        PAdic lcInv = divisor[a.deg].inv();
+        PAdic[] q = new PAdic[deg - a.deg + 1];
+        for (int i = deg - a.deg; i >= 0; i--){
+            q[i] = rem[i + a.deg].mul(lcInv);
+            for (int j = 0; j <= a.deg; j++) rem[i + j] = rem[i + j].sub(q[i].mul(divisor[j]));
+        }
+        PAdic[] r = new PAdic[a.deg];
+        System.arraycopy(rem, 0, r, 0, a.deg);
+        return new PAdicPoly[]{new PAdicPoly(q, p), new PAdicPoly(r, p)};
+    }
+
+    /**
+     * @return polynomial with coefficients of degree >= n dropped
+     */
+    private PAdicPoly truncate(int n){
+        if (deg < n) return this;
+        BigInteger[] c = new BigInteger[n];
+        System.arraycopy(coeff, 0, c, 0, n);
+        return new PAdicPoly(p, precision, val, c);
+    }
+
+    private static BigInteger[] truncate(BigInteger[] a, int n){
+        if (a.length <= n) return a;
+        BigInteger[] out = new BigInteger[n];
+        System.arraycopy(a, 0, out, 0, n);
+        return out;
+    }
+
+    /**
+     * Returns inverse of power series a modulo x^n (and mod), a_0 has to be invertible.
+     * Uses Newton's iteration h = h(2 - ah) doubling number of correct terms.
+     */
+    private static BigInteger[] seriesInverse(BigInteger[] a, int n, BigInteger mod){
+        BigInteger[] h = {a[0].modInverse(mod)};
+        for (int k = 1; k < n; ){
+            k = Math.min(2 * k, n);
+            BigInteger[] e = truncate(mulMod(truncate(a, k), h, mod), k);
+            for (int i = 0; i < e.length; i++) e[i] = e[i].negate().mod(mod);
+            e[0] = e[0].add(BigInteger.TWO).mod(mod);
+            h = truncate(mulMod(h, e, mod), k);
+        }
+        return h;
+    }
+
+    /**
+     * Returns composition this(a(x)).
+     * IMPLEMENTATION:
+     * this = low + x^h * high where h is a power of 2, so
+     * this(a) = low(a) + a^h * high(a). Powers a^(2^k) are computed once
+     * by squaring, so all multiplications are balanced.
+     * @param a polynomial
+     * @return composition
+     */
+    public PAdicPoly compose(PAdicPoly a){
+        check(a);
+        if (isZero()) return this;
+        ArrayList<PAdicPoly> powers = new ArrayList<PAdicPoly>();
+        powers.add(a);
+        return compose(a, 0, deg + 1, powers);
+    }
+
+    private PAdicPoly compose(PAdicPoly a, int from, int count, ArrayList<PAdicPoly> powers){
+        if (count == 1) return new PAdicPoly(p, precision, val, new BigInteger[]{coeff[from]});
+        int half = Integer.highestOneBit(count - 1);
+        int k = Integer.numberOfTrailingZeros(half);
+        while (powers.size() <= k) powers.add(powers.get(powers.size() - 1).mul(powers.get(powers.size() - 1)));
+        PAdicPoly low = compose(a, from, half, powers);
+        PAdicPoly high = compose(a, from + half, count - half, powers);
+        return low.add(high.mul(powers.get(k)));
+    }
+
+    public PAdic evaluate(PAdic n){
+        if (n.getP() != p) throw new FieldError(p, n.getP());
+        if (this.isZero()) return new PAdic(0, p);
+        MutablePAdic x = new MutablePAdic(n);
+        MutablePAdic c = new MutablePAdic(p);
+        MutablePAdic out = new MutablePAdic(p);
+        for (int i = this.deg; i >= 0; i--){
+            out.fmaInPlace(x, c.set(getCoeff(i)));
+        }
+        return out.toPAdic();
+    }
+
+    @Override
+    public String toString() {
+        if (this.isZero()) return "0";
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i <= this.deg; i++){
+            if (this.coeff[i].signum() == 0) continue;
+            if (i != 0) s.append(" + ");
+            if (i != 0) s.append(getCoeff(i)).append("x^").append(i);
+            else s.append(getCoeff(i));
+        }
+        return s.toString();
+    }
+}
@@ -20,34 +20,72 @@ ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEAL
 
 package Poly;
 
+import pAdicNumbers.FieldError;
+import pAdicNumbers.MutablePAdic;
 import pAdicNumbers.PAdic;
+import pAdicNumbers.PAdicMathContext;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.stream.IntStream;
 
 /**
  * Class representing elements of Z[X].
+ * Coefficients are kept in a primitive long[] as long as they fit,
+ * otherwise the polynomial falls back to BigInteger[] coefficients.
+ * Integer evaluation never overflows silently.
  */
 public class Poly {
-    private final ArrayList<Integer> coeff; //coeffs of polynomial from a_0 to a_n.
+    private static final int SUBPRODUCT_THRESHOLD = 512; //< lowest degree for which subproduct tree is used
+    private static final int PARALLEL_THRESHOLD = 1 << 12; //< lowest (number of points) * degree evaluated in parallel
+    private static final int LEAF_SIZE = 8;
+
+    private final long[] coeff; //coeffs of polynomial from a_0 to a_n, null if they don't fit in longs.
+    private final BigInteger[] bigCoeff; //the same coeffs, used only if coeff == null
     private final int deg;
     
     public Poly(ArrayList<Integer> coeff){
         int deg = -1;
         for (int i = 0; i < coeff.size(); i++) if (coeff.get(i) != 0) deg = i;
         this.deg = deg;
-        if (deg < 0) this.coeff = null;
-        else this.coeff = (ArrayList<Integer>) coeff.clone();
+        this.coeff = new long[deg + 1];
+        for (int i = 0; i <= deg; i++) this.coeff[i] = coeff.get(i);
+        this.bigCoeff = null;
     }
 
     public Poly(int[] coeff){
         int deg = -1;
         for (int i = 0; i < coeff.length ; i++) if (coeff[i] != 0) deg = i;
         this.deg = deg;
-        if (deg < 0) this.coeff = null;
+        this.coeff = new long[deg + 1];
+        for (int i = 0; i <= deg; i++) this.coeff[i] = coeff[i];
+        this.bigCoeff = null;
+    }
+
+    public Poly(long[] coeff){
+        int deg = -1;
+        for (int i = 0; i < coeff.length ; i++) if (coeff[i] != 0) deg = i;
+        this.deg = deg;
+        this.coeff = new long[deg + 1];
+        System.arraycopy(coeff, 0, this.coeff, 0, deg + 1);
+        this.bigCoeff = null;
+    }
+
+    public Poly(BigInteger[] coeff){
+        int deg = -1;
+        boolean fits = true;
+        for (int i = 0; i < coeff.length ; i++) if (coeff[i].signum() != 0) deg = i;
+        for (int i = 0; i <= deg; i++) if (coeff[i].bitLength() > 63) fits = false;
+        this.deg = deg;
+        if (fits) {
+            this.coeff = new long[deg + 1];
+            for (int i = 0; i <= deg; i++) this.coeff[i] = coeff[i].longValue();
+            this.bigCoeff = null;
+        }
         else {
-            ArrayList<Integer> ALcoeff = new ArrayList<Integer>();
-            for (int c : coeff) ALcoeff.add(c);
-            this.coeff = ALcoeff;
+            this.coeff = null;
+            this.bigCoeff = new BigInteger[deg + 1];
+            System.arraycopy(coeff, 0, this.bigCoeff, 0, deg + 1);
         }
     }
     
@@ -58,55 +96,216 @@ public class Poly {
     public int getDeg(){
         return deg;
     }
+
+    /**
+     * @return whether all coefficients fit in a long
+     */
+    public boolean isSmall(){
+        return coeff != null;
+    }
+
+    /**
+     * @param i index
+     * @return i-th coefficient (0 if i > deg)
+     */
+    public BigInteger getCoeff(int i){
+        if (i < 0 || i > deg) return BigInteger.ZERO;
+        if (coeff != null) return BigInteger.valueOf(coeff[i]);
+        return bigCoeff[i];
+    }
+
+    private BigInteger[] bigCoeffs(){
+        if (bigCoeff != null) return bigCoeff;
+        BigInteger[] out = new BigInteger[deg + 1];
+        for (int i = 0; i <= deg; i++) out[i] = BigInteger.valueOf(coeff[i]);
+        return out;
+    }
     
     public Poly add(Poly a){
-        ArrayList<Integer> newCoeff = new ArrayList<Integer>();
-        for (int i = 0; i <= Math.max(a.deg, this.deg); i++){
-            int add = 0;
-            if (i <= a.deg) add += a.coeff.get(i); 
-            if (i <= this.deg) add += this.coeff.get(i);
-            newCoeff.add(add);
+        int n = Math.max(a.deg, this.deg);
+        if (coeff != null && a.coeff != null) {
+            long[] newCoeff = new long[n + 1];
+            boolean overflow = false;
+            for (int i = 0; i <= n; i++){
+                long x = i <= a.deg ? a.coeff[i] : 0;
+                long y = i <= this.deg ? this.coeff[i] : 0;
+                long sum = x + y;
+                if (((x ^ sum) & (y ^ sum)) < 0) { overflow = true; break; }
+                newCoeff[i] = sum;
+            }
+            if (!overflow) return new Poly(newCoeff);
         }
+        BigInteger[] newCoeff = new BigInteger[n + 1];
+        for (int i = 0; i <= n; i++) newCoeff[i] = a.getCoeff(i).add(this.getCoeff(i));
         return new Poly(newCoeff);
     }
-    
+
+    /**
+     * Evaluates polynomial modulo mod
+     * @return value in [0, mod)
+     */
     public int evaluate(int n, int mod){
         if (this.isZero()) return 0;
-        n %= mod;
-        int out = 0;
+        long m = mod;
+        long x = Math.floorMod(n, m);
+        long out = 0;
         for (int i = this.deg; i >= 0; i--){
-            out *= n;
-            out += this.coeff.get(i);
-            out %= mod;
+            long c = coeff != null ? Math.floorMod(coeff[i], m) : bigCoeff[i].mod(BigInteger.valueOf(m)).longValue();
+            out = (out * x + c) % m;
         }
-        return out;
+        return (int) out;
     }
 
+    /**
+     * Evaluates polynomial exactly
+     * @throws ArithmeticException if the value doesn't fit in an int
+     */
     public int evaluate(int n){
         if (this.isZero()) return 0;
-        int out = 0;
+        if (coeff == null) return evaluate(BigInteger.valueOf(n)).intValueExact();
+        long out = 0;
+        for (int i = this.deg; i >= 0; i--){
+            out = Math.addExact(Math.multiplyExact(out, n), coeff[i]);
+        }
+        return Math.toIntExact(out);
+    }
+
+    public BigInteger evaluate(BigInteger n, BigInteger mod){
+        if (this.isZero()) return BigInteger.ZERO;
+        n = n.mod(mod);
+        BigInteger out = BigInteger.ZERO;
         for (int i = this.deg; i >= 0; i--){
-            out *= n;
-            out += this.coeff.get(i);
+            out = out.multiply(n).add(getCoeff(i)).mod(mod);
         }
         return out;
     }
 
-    public PAdic evaluate(PAdic n){
-        if (this.isZero()) return new PAdic(0, n.getP());
-        PAdic out = new PAdic(0, n.getP());
+    public BigInteger evaluate(BigInteger n){
+        if (this.isZero()) return BigInteger.ZERO;
+        BigInteger out = BigInteger.ZERO;
         for (int i = this.deg; i >= 0; i--){
-            out = out.mul(n);
-            out = out.add(this.coeff.get(i));
+            out = out.multiply(n).add(getCoeff(i));
         }
         return out;
     }
+
+    public PAdic evaluate(PAdic n){
+        if (this.isZero()) return new PAdic(0, n.getP());
+        MutablePAdic x = new MutablePAdic(n);
+        MutablePAdic out = new MutablePAdic(n.getP());
+        if (coeff != null) {
+            for (int i = this.deg; i >= 0; i--){
+                out.fmaInPlace(x, this.coeff[i]);
+            }
+        }
+        else {
+            MutablePAdic c = new MutablePAdic(n.getP());
+            for (int i = this.deg; i >= 0; i--){
+                out.fmaInPlace(x, c.set(new PAdic(this.bigCoeff[i], n.getP())));
+            }
+        }
+        return out.toPAdic();
+    }
     
-    public Poly derivative(){//
-        ArrayList<Integer> derArr = (ArrayList<Integer>) this.coeff.clone();
-        derArr.remove(0);
-        for (int i = 0; i < derArr.size(); i++){
-            derArr.set(i, (i + 1) * derArr.get(i));
+    /**
+     * Evaluates polynomial at all given points of the same Q_p.
+     * IMPLEMENTATION:
+     * For high degree and points in Z_p, points are split into groups of
+     * deg points and for every group the subproduct tree of polynomials
+     * (x - x_i) is built. Remainders of this modulo nodes of the tree are
+     * then computed top-down, so the value at x_i is the remainder modulo
+     * (x - x_i). All divisions are by monic polynomials, so no precision is lost.
+     * Otherwise (or if some point is inexact) Horner's scheme is used. Groups / points are processed in
+     * parallel on the common fork-join pool.
+     * @param points p-adic numbers of the same Q_p
+     * @return values at given points
+     */
+    public PAdic[] evaluateAll(PAdic[] points){
+        PAdic[] out = new PAdic[points.length];
+        if (points.length == 0) return out;
+        int p = points[0].getP();
+        boolean integral = true, exact = true;
+        for (PAdic x : points){
+            if (x.getP() != p) throw new FieldError(p, x.getP());
+            if (x.getVal() < 0) integral = false;
+            if (!x.isExact()) exact = false;
+        }
+        //worker threads don't see context of the caller
+        PAdicMathContext context = PAdicMathContext.current();
+        if (deg < SUBPRODUCT_THRESHOLD || !integral || !exact) {
+            IntStream indices = IntStream.range(0, points.length);
+            if ((long) points.length * Math.max(deg, 1) >= PARALLEL_THRESHOLD) indices = indices.parallel();
+            indices.forEach(i -> out[i] = context.call(() -> evaluate(points[i])));
+            return out;
+        }
+        PAdicPoly f = new PAdicPoly(this, p);
+        int groups = (points.length + deg - 1) / deg;
+        IntStream.range(0, groups).parallel().forEach(g -> context.run(() -> {
+            int from = g * deg;
+            int to = Math.min(from + deg, points.length);
+            remainders(f, subproductTree(points, from, to, p), points, out);
+        }));
+        return out;
+    }
+
+    /**
+     * Node of subproduct tree: product of (x - x_i) for from <= i < to.
+     */
+    private static final class Node {
+        final int from, to;
+        final PAdicPoly product;
+        final Node left, right;
+
+        Node(int from, int to, PAdicPoly product, Node left, Node right){
+            this.from = from;
+            this.to = to;
+            this.product = product;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static Node subproductTree(PAdic[] points, int from, int to, int p){
+        if (to - from <= LEAF_SIZE) {
+            PAdicPoly product = null;
+            for (int i = from; i < to; i++){
+                PAdicPoly linear = new PAdicPoly(new PAdic[]{points[i].neg(), new PAdic(1, p)}, p);
+                product = product == null ? linear : product.mul(linear);
+            }
+            return new Node(from, to, product, null, null);
+        }
+        int mid = (from + to) >>> 1;
+        Node left = subproductTree(points, from, mid, p);
+        Node right = subproductTree(points, mid, to, p);
+        return new Node(from, to, left.product.mul(right.product), left, right);
+    }
+
+    private static void remainders(PAdicPoly f, Node node, PAdic[] points, PAdic[] out){
+        if (f.getDeg() >= node.product.getDeg()) f = f.divRem(node.product)[1];
+        if (node.left == null) {
+            for (int i = node.from; i < node.to; i++) out[i] = f.evaluate(points[i]);
+            return;
+        }
+        remainders(f, node.left, points, out);
+        remainders(f, node.right, points, out);
+    }
+
+    public Poly derivative(){
+        if (deg <= 0) return new Poly(new long[0]);
+        if (coeff != null) {
+            long[] derArr = new long[deg];
+            boolean overflow = false;
+            for (int i = 0; i < deg && !overflow; i++){
+                long c = coeff[i + 1];
+                long d = (i + 1) * c;
+                if (Math.multiplyHigh(i + 1, c) != (d >> 63)) overflow = true;
+                derArr[i] = d;
+            }
+            if (!overflow) return new Poly(derArr);
+        }
+        BigInteger[] derArr = new BigInteger[deg];
+        for (int i = 0; i < deg; i++){
+            derArr[i] = BigInteger.valueOf(i + 1).multiply(getCoeff(i + 1));
         }
         return new Poly(derArr);
     }
@@ -116,11 +315,12 @@ public class Poly {
         if (this.isZero()) return "0";
         StringBuilder s = new StringBuilder();
         for (int i = 0; i <= this.deg; i++){
-            if (this.coeff.get(i) == 0) continue;
+            BigInteger c = this.getCoeff(i);
+            if (c.signum() == 0) continue;
             if (i != 0) s.append(" + ");
-            if (i != 0 && this.coeff.get(i) != 1) s.append(this.coeff.get(i).toString()).append("x^").append(i);
+            if (i != 0 && !c.equals(BigInteger.ONE)) s.append(c.toString()).append("x^").append(i);
             else if (i != 0) s.append("x^").append(i);
-            else s.append(this.coeff.get(i).toString());
+            else s.append(c.toString());
         }
         return s.toString();
     }
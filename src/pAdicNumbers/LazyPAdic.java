@@ -0,0 +1,475 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import Poly.Poly;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * Lazily evaluated p-adic number. Value is an expression DAG over add, sub, mul,
+ * div and Newton's method and digits are computed only when requested.
+ * Every node caches its digits, so asking for more digits later continues
+ * from the already known prefix.
+ * IMPLEMENTATION:
+ * Every node has fixed start - lower bound of its valuation, digits are indexed
+ * relative to it. Sums are computed digit by digit with carry. Products use relaxed
+ * multiplication: digit n of the product is ready as soon as digits 0..n of the factors
+ * are known, but pairs of digits are multiplied in square blocks of growing size
+ * (Fischer-Stockmeyer / van der Hoeven scheme), so computing n digits costs
+ * O(M(n) log n) instead of O(n^2). Division by b is the fixpoint c = a' - p * (w' * c),
+ * where b was scaled by inverse of its lowest digit to w = 1 + p * w'. Newton's method
+ * lifts the root further (doubling correct digits) whenever more digits are requested.
+ * Not thread-safe.
+ */
+public abstract class LazyPAdic {
+    private static final int NAIVE_BLOCK = 32; //< blocks of at most this size are multiplied digit by digit
+
+    final int p;
+    final PAdicField field;
+    final int start; //< exponent of the first digit, lower bound of the valuation
+    int[] digits = new int[16]; //< digits[i] is the digit at p^(start + i)
+    private int known = 0;
+
+    LazyPAdic(int p, int start){
+        this.p = p;
+        this.field = PAdicField.of(p);
+        this.start = start;
+    }
+
+    /**
+     * Computes digit at p^(start + i), digits 0..i-1 are already known
+     */
+    abstract int next(int i);
+
+    /**
+     * Makes digits 0..i known
+     */
+    final void ensure(int i){
+        if (i >= digits.length) digits = Arrays.copyOf(digits, Math.max(2 * digits.length, i + 1));
+        while (known <= i){
+            digits[known] = next(known);
+            known++;
+        }
+    }
+
+    /**
+     * Returns lazy p-adic number equal to given one. If a is inexact,
+     * asking for a digit beyond its absolute precision throws.
+     * @param a p-adic number
+     */
+    public static LazyPAdic of(PAdic a){
+        if (a.getVal() == Integer.MAX_VALUE) return new Constant(BigInteger.ZERO, Math.min(0, a.getAbsPrecision()), a.getP(), a.getAbsPrecision());
+        return new Constant(a.num(), a.getVal(), a.getP(), a.getAbsPrecision());
+    }
+
+    public static LazyPAdic of(int n, int p){
+        return new Constant(BigInteger.valueOf(n), 0, p, Integer.MAX_VALUE);
+    }
+
+    public int getP(){
+        return p;
+    }
+
+    /**
+     * Returns digit at p^k
+     * @param k exponent
+     * @return digit in [0, p)
+     */
+    public int digit(int k){
+        if (k < start) return 0;
+        ensure(k - start);
+        return digits[k - start];
+    }
+
+    /**
+     * Returns valuation, searching for the first non-zero digit among
+     * PAdic.getPrecision() digits
+     * @return valuation or Integer.MAX_VALUE if the number is indistinguishable from 0
+     */
+    public int getVal(){
+        int limit = PAdic.getPrecision();
+        for (int i = 0; i < limit; i++){
+            ensure(i);
+            if (digits[i] != 0) return start + i;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns digits at p^from, ..., p^(from + count - 1)
+     */
+    public int[] getDigits(int from, int count){
+        int[] out = new int[count];
+        if (count > 0 && from + count - 1 >= start) ensure(from + count - 1 - start);
+        for (int i = 0; i < count; i++){
+            int k = from + i - start;
+            out[i] = k < 0 ? 0 : digits[k];
+        }
+        return out;
+    }
+
+    /**
+     * Materializes number modulo p^k
+     * @param k exponent of the modulus
+     * @return PAdic equal to this modulo p^k
+     */
+    public PAdic toPAdic(int k){
+        int count = k - start;
+        if (count <= 0) return new PAdic(0, p);
+        ensure(count - 1);
+        int low = 0;
+        while (low < count && digits[low] == 0) low++;
+        if (low == count) return new PAdic(0, p);
+        return new PAdic(value(digits, low, count - low), start + low, p);
+    }
+
+    /**
+     * Returns value of count digits from digits[from] (least significant first)
+     */
+    BigInteger value(int[] d, int from, int count){
+        if (field.smallPow(count) > 0) {
+            long v = 0;
+            for (int i = from + count - 1; i >= from; i--) v = v * p + d[i];
+            return BigInteger.valueOf(v);
+        }
+        int low = Integer.highestOneBit(count - 1);
+        return value(d, from + low, count - low).multiply(field.pow(low)).add(value(d, from, low));
+    }
+
+    private void check(LazyPAdic a){
+        if (a.p != p) throw new FieldError(p, a.p);
+    }
+
+    public LazyPAdic add(LazyPAdic a){
+        check(a);
+        return new Sum(this, a);
+    }
+
+    public LazyPAdic sub(LazyPAdic a){
+        check(a);
+        return new Difference(this, a);
+    }
+
+    public LazyPAdic neg(){
+        return new Difference(new Constant(BigInteger.ZERO, start, p, Integer.MAX_VALUE), this);
+    }
+
+    public LazyPAdic mul(LazyPAdic a){
+        check(a);
+        return new Product(this, a);
+    }
+
+    /**
+     * Valuation of a is determined eagerly (see getVal)
+     * @param a divisor
+     * @return quotient
+     */
+    public LazyPAdic div(LazyPAdic a){
+        check(a);
+        int v = a.getVal();
+        if (v == Integer.MAX_VALUE) throw new RuntimeException("Division by zero");
+        return new Quotient(this, a, v);
+    }
+
+    /**
+     * Returns root of f approximated by x (see NewtonSolver), lifted only as far as digits are requested
+     * @param f polynomial
+     * @param x approximation of the root satisfying v(f(x)) > 2v(f'(x))
+     * @param prime prime
+     * @return root
+     */
+    public static LazyPAdic Newton(Poly f, int x, int prime){
+        return new Root(f, BigInteger.valueOf(x), prime);
+    }
+
+    public void print(int digits){
+        System.out.println(format(digits));
+    }
+
+    public void print(){
+        print(20);
+    }
+
+    @Override
+    public String toString() {
+        return format(20);
+    }
+
+    /**
+     * Same format as PAdic.print(int): digits starting from p^min(val, 0)
+     */
+    private String format(int count){
+        if (p > 31) return "Error, p > 31";
+        int from = Math.min(start, 0);
+        while (from < 0 && digit(from) == 0) from++;
+        int[] d = getDigits(from, count);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < count; i++){
+            s.append(PAdic.digitToChar(d[i]));
+            if (from + i == -1) s.append('.');
+        }
+        return s.reverse().toString();
+    }
+
+    private static final class Constant extends LazyPAdic {
+        private final PrimitiveIterator.OfInt it;
+        private final int absPrecision; //< digits at p^absPrecision and higher are unknown
+
+        Constant(BigInteger n, int val, int p, int absPrecision){
+            super(p, val);
+            this.absPrecision = absPrecision;
+            it = field.digitIterator(n, Integer.MAX_VALUE);
+        }
+
+        @Override
+        int next(int i){
+            if ((long) start + i >= absPrecision)
+                throw new RuntimeException("Digit at p^" + (start + i) + " of a number known modulo p^" + absPrecision + " is unknown");
+            return it.nextInt();
+        }
+    }
+
+    private static final class Sum extends LazyPAdic {
+        private final LazyPAdic a, b;
+        private long carry = 0;
+
+        Sum(LazyPAdic a, LazyPAdic b){
+            super(a.p, Math.min(a.start, b.start));
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        int next(int i){
+            long s = (long) a.digit(start + i) + b.digit(start + i) + carry;
+            carry = s / p;
+            return (int) (s % p);
+        }
+    }
+
+    private static final class Difference extends LazyPAdic {
+        private final LazyPAdic a, b;
+        private int borrow = 0;
+
+        Difference(LazyPAdic a, LazyPAdic b){
+            super(a.p, Math.min(a.start, b.start));
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        int next(int i){
+            long s = (long) a.digit(start + i) - b.digit(start + i) - borrow;
+            borrow = s < 0 ? 1 : 0;
+            return (int) (s < 0 ? s + p : s);
+        }
+    }
+
+    /**
+     * Digits of a starting from p^from, i.e. (a - (a mod p^from)) / p^(from - start)
+     */
+    private static final class Tail extends LazyPAdic {
+        private final LazyPAdic a;
+        private final int from;
+
+        Tail(LazyPAdic a, int from, int start){
+            super(a.p, start);
+            this.a = a;
+            this.from = from;
+        }
+
+        @Override
+        int next(int i){
+            return a.digit(from + i);
+        }
+    }
+
+    /**
+     * Product by 0 <= s < p
+     */
+    private static final class Scaled extends LazyPAdic {
+        private final LazyPAdic a;
+        private final long s;
+        private long carry = 0;
+
+        Scaled(LazyPAdic a, long s){
+            super(a.p, a.start);
+            this.a = a;
+            this.s = s;
+        }
+
+        @Override
+        int next(int i){
+            long t = s * a.digit(start + i) + carry;
+            carry = t / p;
+            return (int) (t % p);
+        }
+    }
+
+    /**
+     * Relaxed product. Writing I = i + 1, J = j + 1 for the pair of digits a_i b_j,
+     * the pairs are covered by squares [2^k, 2^(k+1)) x [t2^k, (t+1)2^k), t >= 1
+     * and their transpositions for t >= 2. Such square contributes to digits
+     * (t + 1)2^k - 2 and higher and needs exactly the digits up to this one,
+     * so it is multiplied when this digit is computed.
+     */
+    private static final class Product extends LazyPAdic {
+        private final LazyPAdic a, b;
+        private long[] acc = new long[16]; //< pending digit sums, acc[n] < (number of contributions) * p
+        private long carry = 0;
+
+        Product(LazyPAdic a, LazyPAdic b){
+            super(a.p, a.start + b.start);
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        int next(int n){
+            a.ensure(n);
+            b.ensure(n);
+            for (int m = 1; (n + 2) % m == 0 && (n + 2) / m >= 2; m *= 2){
+                int t = (n + 2) / m - 1;
+                addProduct(a.digits, m - 1, b.digits, t * m - 1, m, n);
+                if (t >= 2) addProduct(a.digits, t * m - 1, b.digits, m - 1, m, n);
+            }
+            long s = acc[n] + carry;
+            acc[n] = 0;
+            carry = s / p;
+            return (int) (s % p);
+        }
+
+        /**
+         * Adds product of blocks x[xFrom..xFrom + len) and y[yFrom..yFrom + len) at digit pos
+         */
+        private void addProduct(int[] x, int xFrom, int[] y, int yFrom, int len, int pos){
+            if (pos + 2 * len >= acc.length) acc = Arrays.copyOf(acc, Math.max(2 * acc.length, pos + 2 * len + 1));
+            if (len <= NAIVE_BLOCK) {
+                for (int i = 0; i < len; i++){
+                    long xi = x[xFrom + i];
+                    if (xi == 0) continue;
+                    for (int j = 0; j < len; j++){
+                        long prod = xi * y[yFrom + j];
+                        acc[pos + i + j] += prod % p;
+                        acc[pos + i + j + 1] += prod / p;
+                    }
+                }
+                return;
+            }
+            BigInteger prod = value(x, xFrom, len).multiply(value(y, yFrom, len));
+            int[] d = field.digits(prod, 2 * len);
+            for (int i = 0; i < d.length; i++) acc[pos + i] += d[i];
+        }
+    }
+
+    /**
+     * Quotient a / b. With b = p^v * u and s inverse of u mod p, w = s * u has
+     * lowest digit 1 and a / b = (s * a / p^v) / w, so the quotient c satisfies
+     * c = s * a / p^v - p * (w' * c) where w = 1 + p * w'. Digit n of the right side
+     * depends only on digits 0..n - 1 of c.
+     */
+    private static final class Quotient extends LazyPAdic {
+        private final LazyPAdic scaled; //< s * a
+        private final Product feedback; //< w' * c
+        private int borrow = 0;
+
+        Quotient(LazyPAdic a, LazyPAdic b, int v){
+            super(a.p, a.start - v);
+            long s = BigInteger.valueOf(b.digit(v)).modInverse(BigInteger.valueOf(a.p)).longValue();
+            scaled = new Scaled(a, s);
+            LazyPAdic w = new Scaled(new Tail(b, v, 0), s);
+            feedback = new Product(new Tail(w, 1, 0), this);
+        }
+
+        @Override
+        int next(int i){
+            long s = scaled.digit(scaled.start + i) - borrow;
+            if (i > 0) s -= feedback.digit(feedback.start + i - 1);
+            borrow = s < 0 ? 1 : 0;
+            return (int) (s < 0 ? s + p : s);
+        }
+    }
+
+    /**
+     * Root of f lifted by Newton's method (see NewtonSolver) whenever
+     * digits beyond the known ones are requested. Correct digits are
+     * doubled in every step and the known prefix is never recomputed.
+     */
+    private static final class Root extends LazyPAdic {
+        private final Poly f, df;
+        private final int d; //< valuation of f' at the root
+        private BigInteger x; //< root modulo p^a
+        private BigInteger y; //< inverse of f'(x) / p^d modulo p^(a - d)
+        private int a;
+        private int[] chunk = new int[0]; //< digits of x from chunkFrom to a
+        private int chunkFrom = 0;
+        private PrimitiveIterator.OfInt exact; //< digits of x if it is an exact root
+
+        Root(Poly f, BigInteger x, int prime){
+            super(prime, 0);
+            this.f = f;
+            this.df = f.derivative();
+            BigInteger fx = f.evaluate(x);
+            BigInteger dfx = df.evaluate(x);
+            if (fx.signum() == 0) {
+                //exact root, no lifting needed
+                this.d = 0;
+                this.exact = field.digitIterator(x, Integer.MAX_VALUE);
+                return;
+            }
+            if (dfx.signum() == 0) throw new ArithmeticException("Division by 0");
+            this.d = field.valuation(dfx);
+            this.a = field.valuation(fx) - d;
+            if (a <= d) throw new ArithmeticException("Newton's method doesn't converge for given starting point");
+            this.x = x.mod(field.pow(a));
+            this.y = dfx.divide(field.pow(d)).modInverse(field.pow(a - d));
+        }
+
+
+        @Override
+        int next(int i){
+            if (exact != null) return exact.nextInt();
+            if (i >= chunkFrom + chunk.length) {
+                while (a <= i) step();
+                chunk = field.digits(x.divide(field.pow(i)), a - i);
+                chunkFrom = i;
+            }
+            return chunk[i - chunkFrom];
+        }
+
+        private void step(){
+            int next = 2 * a - d;
+            BigInteger mod = field.pow(next + d);
+            BigInteger fx = f.evaluate(x, mod);
+            if (fx.signum() != 0) {
+                BigInteger c = fx.divide(field.pow(a + d)).multiply(y).mod(field.pow(next - a));
+                x = x.subtract(c.multiply(field.pow(a))).mod(field.pow(next));
+            }
+            BigInteger yMod = field.pow(next - d);
+            BigInteger u = df.evaluate(x, mod).divide(field.pow(d)).mod(yMod);
+            y = y.multiply(BigInteger.TWO.subtract(u.multiply(y))).mod(yMod);
+            a = next;
+        }
+    }
+}
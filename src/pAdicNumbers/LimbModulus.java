@@ -0,0 +1,363 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Arithmetic modulo p^N on little-endian arrays of 32-bit limbs (stored in longs).
+ * For odd p numbers are kept in Montgomery form (x * 2^(32L) mod p^N), for p = 2
+ * reduction is just masking, so numbers are kept as they are. All operations
+ * work on caller-provided buffers and don't allocate.
+ */
+final class LimbModulus {
+    private static final long MASK = 0xFFFFFFFFL;
+
+    private final int p;
+    private final int n; //< exponent of the modulus
+    private final int limbs;
+    private final BigInteger modulus;
+    private final long[] m; //< p^N
+    private final long[] r2; //< 2^(64L) mod p^N, used to enter Montgomery form
+    private final long[] one; //< representation of 1
+    private final long[] plainOne; //< 1 as it is, used to leave Montgomery form
+    private final long[] two; //< representation of 2
+    private final long rModP; //< 2^(32L) mod p, 1 for p = 2
+    private final long mPrime; //< -(p^N)^(-1) mod 2^32
+    private final long topMask; //< mask of the highest limb (p = 2 only)
+    private final AtomicReferenceArray<long[]> powers; //< powers[d] = representation of p^d, filled lazily
+
+    LimbModulus(PAdicField field, int n){
+        this.p = field.getP();
+        this.n = n;
+        this.modulus = field.pow(n);
+        //for p = 2 the modulus itself doesn't have to fit, limbs are just masked to N bits
+        if (p == 2) this.limbs = (n + 31) / 32;
+        else this.limbs = (modulus.bitLength() + 31) / 32;
+        this.m = toLimbs(modulus);
+        this.plainOne = toLimbs(BigInteger.ONE);
+        this.powers = new AtomicReferenceArray<>(n);
+        if (p == 2) {
+            this.r2 = null;
+            this.mPrime = 0;
+            this.topMask = n % 32 == 0 ? MASK : (1L << (n % 32)) - 1;
+            this.one = plainOne;
+        }
+        else {
+            BigInteger r = BigInteger.ONE.shiftLeft(32 * limbs);
+            this.r2 = toLimbs(r.multiply(r).mod(modulus));
+            this.mPrime = modulus.modInverse(BigInteger.ONE.shiftLeft(32)).negate().longValue() & MASK;
+            this.topMask = MASK;
+            this.one = toLimbs(r.mod(modulus));
+        }
+        this.rModP = p == 2 ? 1 : BigInteger.ONE.shiftLeft(32 * limbs).mod(field.getBigP()).longValue();
+        this.two = new long[limbs];
+        add(one, one, two);
+    }
+
+    int getP(){
+        return p;
+    }
+
+    int getN(){
+        return n;
+    }
+
+    int limbs(){
+        return limbs;
+    }
+
+    private long[] toLimbs(BigInteger x){
+        long[] out = new long[limbs];
+        for (int i = 0; i < limbs; i++) out[i] = x.shiftRight(32 * i).longValue() & MASK;
+        return out;
+    }
+
+    /**
+     * Writes representation of x into out
+     * @param x BigInteger (arbitrary sign and size)
+     */
+    void toRep(BigInteger x, long[] out){
+        x = x.mod(modulus);
+        if (p != 2) x = x.shiftLeft(32 * limbs).mod(modulus);
+        for (int i = 0; i < limbs; i++) out[i] = x.shiftRight(32 * i).longValue() & MASK;
+    }
+
+    /**
+     * Writes representation of x into out without allocating
+     * @param x long (arbitrary sign)
+     * @param scratch buffer of size limbs() + 2
+     */
+    void toRep(long x, long[] out, long[] scratch){
+        boolean negative = x < 0;
+        if (negative) x = -x; //Long.MIN_VALUE is fine, as it is treated as unsigned below
+        if (p != 2 && limbs <= 2) x = Long.remainderUnsigned(x, limbs == 1 ? m[0] : (m[1] << 32) | m[0]);
+        Arrays.fill(out, 0);
+        out[0] = x & MASK;
+        if (limbs > 1) out[1] = x >>> 32;
+        if (p == 2) out[limbs - 1] &= topMask;
+        else mul(out, r2, out, scratch);
+        if (negative) neg(out, out);
+    }
+
+    /**
+     * @return value of given representation in [0, p^N)
+     */
+    BigInteger fromRep(long[] a, long[] scratch){
+        long[] x = a;
+        if (p != 2) {
+            x = new long[limbs];
+            mul(a, plainOne, x, scratch);
+        }
+        byte[] bytes = new byte[4 * limbs + 1];
+        for (int i = 0; i < limbs; i++){
+            long limb = x[i];
+            int pos = bytes.length - 1 - 4 * i;
+            bytes[pos] = (byte) limb;
+            bytes[pos - 1] = (byte) (limb >>> 8);
+            bytes[pos - 2] = (byte) (limb >>> 16);
+            bytes[pos - 3] = (byte) (limb >>> 24);
+        }
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * @return representation of 1
+     */
+    long[] one(){
+        return one;
+    }
+
+    /**
+     * Returns representation of p^d (d < N), computed once and cached.
+     * The returned array must not be modified.
+     */
+    long[] powerOfP(int d){
+        long[] power = powers.get(d);
+        if (power == null) {
+            power = new long[limbs];
+            toRep(BigInteger.valueOf(p).pow(d), power);
+            powers.compareAndSet(d, null, power);
+        }
+        return power;
+    }
+
+    private static int compare(long[] a, long[] b){
+        for (int i = a.length - 1; i >= 0; i--){
+            if (a[i] != b[i]) return a[i] < b[i] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    private void subtractModulus(long[] a){
+        long borrow = 0;
+        for (int i = 0; i < limbs; i++){
+            long d = a[i] - m[i] - borrow;
+            a[i] = d & MASK;
+            borrow = (d >> 32) & 1;
+        }
+    }
+
+    /**
+     * out = a + b mod p^N (out may alias a or b)
+     */
+    void add(long[] a, long[] b, long[] out){
+        long carry = 0;
+        for (int i = 0; i < limbs; i++){
+            long s = a[i] + b[i] + carry;
+            out[i] = s & MASK;
+            carry = s >>> 32;
+        }
+        if (p == 2) out[limbs - 1] &= topMask;
+        else if (carry != 0 || compare(out, m) >= 0) subtractModulus(out);
+    }
+
+    /**
+     * out = -a mod p^N (out may alias a)
+     */
+    void neg(long[] a, long[] out){
+        if (isZero(a)) { System.arraycopy(a, 0, out, 0, limbs); return; }
+        long borrow = 0;
+        for (int i = 0; i < limbs; i++){
+            long d = m[i] - a[i] - borrow;
+            out[i] = d & MASK;
+            borrow = (d >> 32) & 1;
+        }
+        if (p == 2) out[limbs - 1] &= topMask;
+    }
+
+    /**
+     * out = a * b mod p^N (in representation), out may alias a or b
+     * @param scratch buffer of size limbs() + 2
+     */
+    void mul(long[] a, long[] b, long[] out, long[] scratch){
+        long[] t = scratch;
+        Arrays.fill(t, 0, limbs + 2, 0);
+        if (p == 2) {
+            for (int i = 0; i < limbs; i++){
+                long carry = 0;
+                long bi = b[i];
+                for (int j = 0; i + j < limbs; j++){
+                    long s = t[i + j] + a[j] * bi + carry;
+                    t[i + j] = s & MASK;
+                    carry = s >>> 32;
+                }
+            }
+            t[limbs - 1] &= topMask;
+            System.arraycopy(t, 0, out, 0, limbs);
+            return;
+        }
+        //CIOS Montgomery multiplication
+        for (int i = 0; i < limbs; i++){
+            long carry = 0;
+            long bi = b[i];
+            for (int j = 0; j < limbs; j++){
+                long s = t[j] + a[j] * bi + carry;
+                t[j] = s & MASK;
+                carry = s >>> 32;
+            }
+            long s = t[limbs] + carry;
+            t[limbs] = s & MASK;
+            t[limbs + 1] = s >>> 32;
+            long q = (t[0] * mPrime) & MASK;
+            carry = (t[0] + q * m[0]) >>> 32;
+            for (int j = 1; j < limbs; j++){
+                s = t[j] + q * m[j] + carry;
+                t[j - 1] = s & MASK;
+                carry = s >>> 32;
+            }
+            s = t[limbs] + carry;
+            t[limbs - 1] = s & MASK;
+            t[limbs] = t[limbs + 1] + (s >>> 32);
+        }
+        System.arraycopy(t, 0, out, 0, limbs);
+        if (t[limbs] != 0 || compare(out, m) >= 0) subtractModulus(out);
+    }
+
+    /**
+     * out = a^(-1) mod p^N (in representation) for a unit a. Newton iteration
+     * y' = y(2 - ay) doubles the number of correct digits, so only O(log N)
+     * multiplications are needed instead of extended gcd on BigIntegers.
+     * out must not alias a.
+     * @param tmp buffer of size limbs()
+     * @param scratch buffer of size limbs() + 2
+     */
+    void inverse(long[] a, long[] out, long[] tmp, long[] scratch){
+        //y_0 = a^(-1) mod p, for Montgomery form a * R it is stored as R^2 / (a * R) mod p
+        long unit = remainderP(a);
+        long y = 1;
+        for (long base = unit, e = p - 2; e > 0; e >>= 1, base = base * base % p){
+            if ((e & 1) == 1) y = y * base % p;
+        }
+        Arrays.fill(out, 0);
+        out[0] = rModP * rModP % p * y % p;
+        for (int k = 1; k < n; k *= 2){
+            mul(a, out, tmp, scratch);
+            neg(tmp, tmp);
+            add(tmp, two, tmp);
+            mul(out, tmp, out, scratch);
+        }
+    }
+
+    /**
+     * Adds y * p^vy to x * p^vx, leaving unit part of the sum in x. Zero has
+     * valuation Integer.MAX_VALUE, y is a representation of a unit and may be
+     * overwritten if it is tmp.
+     * @param tmp buffer of size limbs()
+     * @param scratch buffer of size limbs() + 2
+     * @return valuation of the sum
+     */
+    int addShifted(long[] x, int vx, long[] y, int vy, long[] tmp, long[] scratch){
+        if (vy == Integer.MAX_VALUE) return vx;
+        if (vx == Integer.MAX_VALUE) {
+            System.arraycopy(y, 0, x, 0, limbs);
+            return vy;
+        }
+        if (vy < vx) {
+            long d = (long) vx - vy;
+            if (d >= n) System.arraycopy(y, 0, x, 0, limbs);
+            else {
+                mul(x, powerOfP((int) d), x, scratch);
+                add(x, y, x);
+            }
+            vx = vy;
+        }
+        else if (vy > vx) {
+            long d = (long) vy - vx;
+            if (d >= n) return vx;
+            mul(y, powerOfP((int) d), tmp, scratch);
+            add(x, tmp, x);
+        }
+        else add(x, y, x);
+        return normalize(x, vx);
+    }
+
+    /**
+     * Strips factors of p from x, after an addition or after
+     * it got reduced to zero modulo p^N.
+     * @param v valuation of the number before
+     * @return valuation of the number, Integer.MAX_VALUE if x is zero
+     */
+    int normalize(long[] x, int v){
+        if (isZero(x)) return Integer.MAX_VALUE;
+        while (remainderP(x) == 0){
+            divideP(x);
+            v++;
+        }
+        return v;
+    }
+
+    static boolean isZero(long[] a){
+        for (long limb : a) if (limb != 0) return false;
+        return true;
+    }
+
+    /**
+     * @return representation mod p, which is zero iff the represented number is divisible by p
+     */
+    long remainderP(long[] a){
+        long rem = 0;
+        for (int i = limbs - 1; i >= 0; i--) rem = ((rem << 32) | a[i]) % p;
+        return rem;
+    }
+
+    /**
+     * Divides representation of a number divisible by p by p. The result is
+     * correct modulo p^(N-1), as the highest digit is lost.
+     */
+    void divideP(long[] a){
+        if (p == 2) {
+            for (int i = 0; i < limbs; i++){
+                long next = i + 1 < limbs ? a[i + 1] : 0;
+                a[i] = ((a[i] >>> 1) | (next << 31)) & MASK;
+            }
+            return;
+        }
+        long rem = 0;
+        for (int i = limbs - 1; i >= 0; i--){
+            long cur = (rem << 32) | a[i];
+            a[i] = cur / p;
+            rem = cur % p;
+        }
+    }
+}
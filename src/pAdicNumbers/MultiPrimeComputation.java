@@ -0,0 +1,159 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * One computation (over PAdic, Poly, ...) evaluated in Q_p for many primes at once,
+ * e.g. to compare local behaviour of the same rational expression:
+ * <pre>
+ *     Map&lt;Integer, PAdic&gt; x = new MultiPrimeComputation&lt;&gt;(p -&gt; new PAdic(1, 3, p).add(new PAdic(2, 5, p)).log())
+ *         .run(2, 3, 7, 11, 13);
+ * </pre>
+ * Every prime is a separate task on a fork-join pool (the common one by default) and
+ * runs with its own PAdicMathContext bound, so primes can use different precisions
+ * and don't interfere with each other or with the caller. Numbers of different primes
+ * never meet, as every task builds its own objects from the prime it gets.
+ * IMPLEMENTATION:
+ * Tasks are submitted from the largest prime down, as larger primes usually
+ * take longer, so that the longest tasks don't end up last. The caller waits
+ * for all the tasks, so failures of some primes don't leave others running.
+ */
+public final class MultiPrimeComputation<T> {
+    private final IntFunction<? extends T> computation;
+    private final IntFunction<PAdicMathContext> contexts; //< context of every prime, null for the caller's one
+    private final ForkJoinPool pool;
+
+    /**
+     * @param computation computation in Q_p for a given prime p
+     */
+    public MultiPrimeComputation(IntFunction<? extends T> computation){
+        this(computation, null, ForkJoinPool.commonPool());
+    }
+
+    private MultiPrimeComputation(IntFunction<? extends T> computation, IntFunction<PAdicMathContext> contexts, ForkJoinPool pool){
+        this.computation = computation;
+        this.contexts = contexts;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the same computation run with given context for every prime
+     * (by default every prime uses context of the caller of run)
+     * @param contexts context of a given prime
+     * @return computation with given contexts
+     */
+    public MultiPrimeComputation<T> withContexts(IntFunction<PAdicMathContext> contexts){
+        return new MultiPrimeComputation<>(computation, contexts, pool);
+    }
+
+    /**
+     * Returns the same computation run with given precision for every prime
+     * @param precision number of relevant digits
+     * @return computation with given precision
+     */
+    public MultiPrimeComputation<T> withPrecision(int precision){
+        PAdicMathContext context = new PAdicMathContext(precision);
+        return withContexts(p -> context);
+    }
+
+    /**
+     * Returns the same computation run on given pool
+     * @param pool fork-join pool
+     * @return computation on given pool
+     */
+    public MultiPrimeComputation<T> withPool(ForkJoinPool pool){
+        return new MultiPrimeComputation<>(computation, contexts, pool);
+    }
+
+    /**
+     * Runs the computation for all given primes concurrently
+     * @param primes primes (duplicates are computed once)
+     * @return results by prime, in the order of primes
+     * @throws RuntimeException if the computation fails (with any Throwable) for some
+     * prime, after all primes are done (failures of other primes are suppressed exceptions)
+     */
+    public Map<Integer, T> run(int... primes){
+        PAdicMathContext caller = PAdicMathContext.current();
+        int[] distinct = Arrays.stream(primes).distinct().toArray();
+        //invalid primes are rejected before anything is submitted
+        for (int p : distinct) PAdicField.of(p);
+        Map<Integer, ForkJoinTask<T>> tasks = new LinkedHashMap<>();
+        for (int p : distinct){
+            PAdicMathContext context = contexts != null ? contexts.apply(p) : caller;
+            tasks.put(p, ForkJoinTask.adapt(() -> context.call(() -> computation.apply(p))));
+        }
+        boolean parallel = pool.getParallelism() > 1 && distinct.length > 1;
+        if (parallel) {
+            int[] order = Arrays.stream(distinct).boxed().sorted((a, b) -> Integer.compare(b, a)).mapToInt(p -> p).toArray();
+            for (int p : order) pool.execute(tasks.get(p));
+        }
+        Map<Integer, T> out = new LinkedHashMap<>();
+        RuntimeException failure = null;
+        for (Map.Entry<Integer, ForkJoinTask<T>> task : tasks.entrySet()){
+            try {
+                out.put(task.getKey(), parallel ? task.getValue().join() : task.getValue().invoke());
+            }
+            catch (Throwable e){
+                //RootDoesntExist and FieldError are Errors, so they are attributed to their prime as well
+                RuntimeException f = new RuntimeException("Computation failed for p = " + task.getKey(), e);
+                if (failure == null) failure = f;
+                else failure.addSuppressed(f);
+            }
+        }
+        if (failure != null) throw failure;
+        return out;
+    }
+
+    /**
+     * Runs the computation for all given primes concurrently, see run(int...)
+     * @param primes primes
+     * @return results by prime, in the order of primes
+     */
+    public Map<Integer, T> run(Collection<Integer> primes){
+        return run(primes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Returns primes in [from, to), e.g. as the argument of run
+     * @param from lower bound
+     * @param to upper bound
+     * @return primes in increasing order
+     */
+    public static int[] primes(int from, int to){
+        List<Integer> out = new ArrayList<>();
+        for (int n = Math.max(from, 2); n < to; n++){
+            boolean prime = true;
+            for (int d = 2; (long) d * d <= n && prime; d++) prime = n % d != 0;
+            if (prime) out.add(n);
+        }
+        return out.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
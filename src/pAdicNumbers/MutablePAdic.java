@@ -0,0 +1,255 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+/**
+ * Mutable p-adic number meant to be used as an accumulator in hot loops.
+ * The operations modify the number in place and work on preallocated
+ * limb buffers, so once all the needed powers of p are cached they don't
+ * allocate at all. Conversion from and to PAdic is only done at the edges.
+ * The unit part is kept modulo p^N, where N is the precision at the time
+ * of creation. All the operands of a single operation have to share it.
+ * Absolute precision (see PAdic.getAbsPrecision) is propagated by the same
+ * rules as in PAdic, so digits that aren't known aren't reported by toPAdic.
+ */
+public final class MutablePAdic {
+    private final LimbModulus mod;
+    private final int p;
+    private final long[] x; //< unit part
+    private int val;
+    private int prec = Integer.MAX_VALUE; //< absolute precision, Integer.MAX_VALUE for exact numbers
+    private final long[] tmp; //< second operand aligned to this.val
+    private final long[] saved; //< copy of this used when an operand aliases it
+    private final long[] scratch;
+
+    /**
+     * Constructs zero
+     * @param p prime
+     */
+    public MutablePAdic(int p){
+        this.p = p;
+        this.mod = PAdicField.of(p).limbModulus(PAdic.getPrecision());
+        int limbs = mod.limbs();
+        this.x = new long[limbs];
+        this.tmp = new long[limbs];
+        this.saved = new long[limbs];
+        this.scratch = new long[limbs + 2];
+        this.val = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs mutable copy of given p-adic number
+     * @param a p-adic number
+     */
+    public MutablePAdic(PAdic a){
+        this(a.getP());
+        set(a);
+    }
+
+    public int getP(){
+        return p;
+    }
+
+    public int getVal(){
+        return val;
+    }
+
+    public int getPrecision(){
+        return mod.getN();
+    }
+
+    /**
+     * @return absolute precision, Integer.MAX_VALUE for exact numbers
+     */
+    public int getAbsPrecision(){
+        return prec;
+    }
+
+    public boolean isZero(){
+        return val == Integer.MAX_VALUE;
+    }
+
+    private void check(MutablePAdic a){
+        if (p != a.p) throw new FieldError(p, a.p);
+        if (mod != a.mod) throw new RuntimeException("Precision mismatch: " + mod.getN() + " and " + a.mod.getN());
+    }
+
+    public MutablePAdic setZero(){
+        val = Integer.MAX_VALUE;
+        prec = Integer.MAX_VALUE;
+        return this;
+    }
+
+    public MutablePAdic set(PAdic a){
+        if (p != a.getP()) throw new FieldError(p, a.getP());
+        val = a.getVal();
+        prec = a.getAbsPrecision();
+        if (val == Integer.MAX_VALUE) return this;
+        if (a.isSmall()) mod.toRep(a.smallNum(), x, scratch);
+        else mod.toRep(a.num(), x);
+        normalize();
+        return this;
+    }
+
+    public MutablePAdic set(MutablePAdic a){
+        check(a);
+        System.arraycopy(a.x, 0, x, 0, x.length);
+        val = a.val;
+        prec = a.prec;
+        return this;
+    }
+
+    public MutablePAdic set(long a){
+        int v = load(a, x);
+        val = v;
+        prec = Integer.MAX_VALUE;
+        return this;
+    }
+
+    /**
+     * Writes representation of unit part of a into out
+     * @return valuation of a
+     */
+    private int load(long a, long[] out){
+        if (a == 0) return Integer.MAX_VALUE;
+        int v = 0;
+        while (a % p == 0){
+            a /= p;
+            v++;
+        }
+        mod.toRep(a, out, scratch);
+        return v;
+    }
+
+    /**
+     * Strips factors of p from the unit part
+     */
+    private void normalize(){
+        val = mod.normalize(x, val);
+    }
+
+    /**
+     * Adds y * p^(vy) known modulo p^ny to this, y is a representation
+     * of a unit and may be overwritten if it is tmp.
+     */
+    private void addRep(long[] y, int vy, int ny){
+        prec = PAdic.sumPrecision(val, prec, vy, ny, mod.getN());
+        val = mod.addShifted(x, val, y, vy, tmp, scratch);
+        if (val >= prec) val = Integer.MAX_VALUE; //digits below precision cancelled
+    }
+
+    public MutablePAdic addInPlace(MutablePAdic a){
+        check(a);
+        addRep(a.x, a.val, a.prec);
+        return this;
+    }
+
+    public MutablePAdic addInPlace(long a){
+        int v = load(a, tmp);
+        addRep(tmp, v, Integer.MAX_VALUE);
+        return this;
+    }
+
+    public MutablePAdic subInPlace(MutablePAdic a){
+        check(a);
+        if (a.val == Integer.MAX_VALUE) {
+            prec = PAdic.sumPrecision(val, prec, a.val, a.prec, mod.getN());
+            return this;
+        }
+        mod.neg(a.x, tmp);
+        addRep(tmp, a.val, a.prec);
+        return this;
+    }
+
+    public MutablePAdic negInPlace(){
+        if (val != Integer.MAX_VALUE) mod.neg(x, x);
+        return this;
+    }
+
+    public MutablePAdic mulInPlace(MutablePAdic a){
+        check(a);
+        prec = PAdic.productPrecision(val, prec, a.val, a.prec, mod.getN());
+        if (val == Integer.MAX_VALUE) return this;
+        if (a.val == Integer.MAX_VALUE) {
+            val = Integer.MAX_VALUE;
+            return this;
+        }
+        mod.mul(x, a.x, x, scratch);
+        val += a.val;
+        return this;
+    }
+
+    public MutablePAdic mulInPlace(long a){
+        if (val == Integer.MAX_VALUE && prec == Integer.MAX_VALUE) return this;
+        int v = load(a, tmp);
+        if (v == Integer.MAX_VALUE) return setZero();
+        prec = PAdic.productPrecision(val, prec, v, Integer.MAX_VALUE, mod.getN());
+        if (val == Integer.MAX_VALUE) return this;
+        mod.mul(x, tmp, x, scratch);
+        val += v;
+        return this;
+    }
+
+    /**
+     * Fused multiply-add: this = this * a + b, used in Horner-like loops
+     * @param a factor
+     * @param b addend (may be this)
+     * @return this
+     */
+    public MutablePAdic fmaInPlace(MutablePAdic a, MutablePAdic b){
+        check(a);
+        check(b);
+        if (b == this) {
+            System.arraycopy(x, 0, saved, 0, x.length);
+            int savedVal = val, savedPrec = prec;
+            mulInPlace(a);
+            addRep(saved, savedVal, savedPrec);
+            return this;
+        }
+        mulInPlace(a);
+        addRep(b.x, b.val, b.prec);
+        return this;
+    }
+
+    /**
+     * Fused multiply-add: this = this * a + b
+     * @param a factor
+     * @param b addend
+     * @return this
+     */
+    public MutablePAdic fmaInPlace(MutablePAdic a, long b){
+        mulInPlace(a);
+        return addInPlace(b);
+    }
+
+    /**
+     * @return immutable copy of this number
+     */
+    public PAdic toPAdic(){
+        PAdic out = val == Integer.MAX_VALUE ? new PAdic(0, p) : new PAdic(mod.fromRep(x, scratch), val, p);
+        return prec == Integer.MAX_VALUE ? out : out.withPrecision(prec);
+    }
+
+    @Override
+    public String toString() {
+        return toPAdic().toString();
+    }
+}
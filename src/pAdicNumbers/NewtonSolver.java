@@ -0,0 +1,91 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import Poly.Poly;
+
+import java.math.BigInteger;
+
+/**
+ * Refines approximate roots of polynomials in Z[X] to roots in Z_p.
+ * IMPLEMENTATION:
+ * Let d = v(f'(x_0)) and suppose v(f(x_0)) > 2d. Then there is a root r
+ * with r = x_0 mod p^a, where a = v(f(x_0)) - d, and every Newton step
+ * x_{n+1} = x_n - f(x_n)/f'(x_n) increases a to 2a - d. Since the iterates
+ * are integers, we compute them modulo p^a only, raising a step by step
+ * until it reaches the precision. Inverse of f'(x_n)/p^d is needed only
+ * to precision a - d and is carried along the iteration (updated with one
+ * Newton step for inverse instead of being recomputed).
+ */
+public final class NewtonSolver {
+    private NewtonSolver(){}
+
+    public static PAdic lift(Poly f, int x, int prime){
+        return lift(f, BigInteger.valueOf(x), prime);
+    }
+
+    /**
+     * Returns root of f approximated by x
+     * @param f polynomial
+     * @param x approximation of the root satisfying v(f(x)) > 2v(f'(x))
+     * @param prime prime
+     * @return root with PAdic.getPrecision() relevant digits
+     */
+    public static PAdic lift(Poly f, BigInteger x, int prime){
+        PAdicField field = PAdicField.of(prime);
+        Poly df = f.derivative();
+        BigInteger fx = f.evaluate(x);
+        if (fx.signum() == 0) return new PAdic(x, prime);
+        BigInteger dfx = df.evaluate(x);
+        if (dfx.signum() == 0) throw new ArithmeticException("Division by 0");
+        int d = field.valuation(dfx);
+        int a = field.valuation(fx) - d;
+        if (a <= d) throw new ArithmeticException("Newton's method doesn't converge for given starting point");
+        int precision = PAdic.getPrecision();
+        int target = precision;
+        x = x.mod(field.pow(a));
+        BigInteger y = dfx.divide(field.pow(d)).modInverse(field.pow(a - d));
+        while (true){
+            while (a < target){
+                int next = (int) Math.min(2L * a - d, target);
+                BigInteger mod = field.pow(next + d);
+                fx = f.evaluate(x, mod);
+                if (fx.signum() != 0) {
+                    //f(x) is divisible by p^(a + d), correction is (f(x) / p^(a + d)) * y * p^a
+                    BigInteger c = fx.divide(field.pow(a + d)).multiply(y).mod(field.pow(next - a));
+                    x = x.subtract(c.multiply(field.pow(a))).mod(field.pow(next));
+                }
+                if (next < target) {
+                    BigInteger yMod = field.pow(next - d);
+                    BigInteger u = df.evaluate(x, mod).divide(field.pow(d)).mod(yMod);
+                    y = y.multiply(BigInteger.TWO.subtract(u.multiply(y))).mod(yMod);
+                }
+                a = next;
+            }
+            //relative precision is what counts, so roots divisible by p need more digits
+            if (x.signum() == 0) return new PAdic(0, prime);
+            int v = field.valuation(x);
+            if (target >= precision + v) break;
+            target = precision + v;
+        }
+        return new PAdic(x, prime);
+    }
+}
@@ -22,8 +22,14 @@ package pAdicNumbers;
 
 import Poly.Poly;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.Stream;
 
 /**
  * Class representing p-adic numbers.
@@ -32,17 +38,19 @@ import java.util.LinkedList;
  * (val = Integer.MAX_VALUE for m = 0)
  */
 public class PAdic {
-    private final BigInteger num;
+    private BigInteger num; //< materialized lazily for numbers created by the small path
+    private final long unit; //< value of num, valid only if small
+    private final boolean small; //< whether num fits in a long
     private final int val;
     private final int p;
-    private static int precision = 1000; //< Number of relevant digits (in Q_p)
+    private final PAdicField field;
+    private final int prec; //< absolute precision: value is known modulo p^prec, Integer.MAX_VALUE for exact numbers
+    //Number of relevant digits (in Q_p) is given by PAdicMathContext.current(),
+    //1000 by default
     //Please note that precision parameter determines computation precision only
     //and that creating p-adic numbers with higher than set precision is always
     //possible via constructors. Also it does not influence already created numbers.
     
-    private static BigInteger almostZero;
-    private static boolean updateNeeded = true;
-    
     //Please note that (so far ?) constructors don't check whether given parameters
     //are correct / perform only partial validation of arguments, thus
     //incorrect parameters yield undefined behaviour
@@ -53,6 +61,17 @@ public class PAdic {
      * @param p prime
      */
     public PAdic(String s, int p){
+        this((CharSequence) s, p);
+    }
+
+    /**
+     * Constructs p-adic number from string with its digits.
+     * Digits are combined by divide and conquer (see PAdicField.fromDigits),
+     * so parsing long strings is subquadratic.
+     * @param s non-empty string with digits in Q_p of a given numbers
+     * @param p prime
+     */
+    public PAdic(CharSequence s, int p){
         int val = 0;
         boolean nonZeroOccured = false;
         boolean dotOccured = false;
@@ -75,16 +94,92 @@ public class PAdic {
             }
             else throw new RuntimeException("Cannot parse string: " + s + " to p-adic integer.");
         }
-        BigInteger num = BigInteger.ZERO;
+        PAdicField field = PAdicField.of(p);
+        byte[] digits = new byte[stop + 1];
+        int count = 0;
         for (int i = 0; i <= stop; i++){
             if (s.charAt(i) == '.') continue;
-            num = num.multiply(BigInteger.valueOf(p));
-            num = num.add(BigInteger.valueOf(PAdic.charToByte(s.charAt(i))));
+            digits[count++] = PAdic.charToByte(s.charAt(i));
         }
+        BigInteger num = field.fromDigits(digits, 0, count);
         this.num = num;
+        this.small = num.bitLength() < 64;
+        this.unit = small ? num.longValue() : 0;
         if (num.equals(BigInteger.ZERO)) this.val = Integer.MAX_VALUE;
         else this.val = val;
         this.p = p;
+        this.field = field;
+        this.prec = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs p-adic number from string with its digits (see PAdic(CharSequence, int)),
+     * known only modulo p^absPrecision
+     * @param s non-empty string with digits in Q_p of a given numbers
+     * @param p prime
+     * @param absPrecision absolute precision
+     */
+    public PAdic(CharSequence s, int p, int absPrecision){
+        this(new PAdic(s, p).withPrecision(absPrecision));
+    }
+
+    /**
+     * Parses approximation given by its digits, i.e. the number is known modulo p^k,
+     * where k is the number of digits before the point (all of them if there is none).
+     * E.g. "0123" in Q_7 is 66 + O(7^4) and "12.3" is 7 + 2 + 3/7 + O(7^2).
+     * @param s non-empty string with digits in Q_p of a given numbers
+     * @param p prime
+     * @return inexact p-adic number
+     */
+    public static PAdic parseInexact(CharSequence s, int p){
+        int point = s.toString().indexOf('.');
+        return new PAdic(s, p, point < 0 ? s.length() : point);
+    }
+
+    /**
+     * Parses all given strings (see PAdic(CharSequence, int)). All of them
+     * share cached powers of p, so they are computed only once.
+     * @param s strings with digits
+     * @param p prime
+     * @return array of p-adic numbers
+     */
+    public static PAdic[] parseAll(CharSequence[] s, int p){
+        return parseAll(s, p, false);
+    }
+
+    /**
+     * Parses all given strings, see parseAll(CharSequence[], int)
+     * @param s strings with digits
+     * @param p prime
+     * @param inexact whether the numbers are known only to the given digits (see parseInexact)
+     * @return array of p-adic numbers
+     */
+    public static PAdic[] parseAll(CharSequence[] s, int p, boolean inexact){
+        PAdic[] out = new PAdic[s.length];
+        for (int i = 0; i < s.length; i++) out[i] = inexact ? parseInexact(s[i], p) : new PAdic(s[i], p);
+        return out;
+    }
+
+    /**
+     * Lazily parses given strings (see PAdic(CharSequence, int))
+     * @param s stream of strings with digits
+     * @param p prime
+     * @return stream of p-adic numbers
+     */
+    public static Stream<PAdic> parseAll(Stream<String> s, int p){
+        return parseAll(s, p, false);
+    }
+
+    /**
+     * Lazily parses given strings, see parseAll(Stream, int)
+     * @param s stream of strings with digits
+     * @param p prime
+     * @param inexact whether the numbers are known only to the given digits (see parseInexact)
+     * @return stream of p-adic numbers
+     */
+    public static Stream<PAdic> parseAll(Stream<String> s, int p, boolean inexact){
+        PAdicField.of(p);
+        return s.map(x -> inexact ? parseInexact(x, p) : new PAdic(x, p));
     }
 
     /**
@@ -96,9 +191,49 @@ public class PAdic {
      */
     public PAdic(BigInteger n, int val, int p){
         num = n;
+        small = n.bitLength() < 64;
+        unit = small ? n.longValue() : 0;
         if (num.equals(BigInteger.ZERO)) this.val = Integer.MAX_VALUE;
         else this.val = val;
         this.p = p;
+        this.field = PAdicField.of(p);
+        this.prec = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs p-adic number n * p^(val) known only modulo p^absPrecision,
+     * n is truncated accordingly (n not divisible by p or n = 0 and whatever)
+     * @param n BigInteger
+     * @param val p-adic valuation
+     * @param p prime
+     * @param absPrecision absolute precision
+     */
+    public PAdic(BigInteger n, int val, int p, int absPrecision){
+        this(new PAdic(n, val, p).withPrecision(absPrecision));
+    }
+
+    /**
+     * Copy constructor
+     */
+    private PAdic(PAdic a){
+        this(a.num, a.unit, a.small, a.val, a.field, a.prec);
+    }
+
+    private PAdic(BigInteger num, long unit, boolean small, int val, PAdicField field, int prec){
+        this.num = num;
+        this.unit = unit;
+        this.small = small;
+        this.val = val;
+        this.p = field.getP();
+        this.field = field;
+        this.prec = prec;
+    }
+
+    /**
+     * Constructs p-adic number from already validated parts (used by PAdicStore)
+     */
+    static PAdic fromParts(BigInteger num, long unit, boolean small, int val, PAdicField field, int prec){
+        return new PAdic(num, unit, small, val, field, prec);
     }
 
     /**
@@ -108,15 +243,30 @@ public class PAdic {
      */
     public PAdic(BigInteger n, int p){
         this.p = p;
-        if (n.equals(BigInteger.ZERO)) {this.val = Integer.MAX_VALUE; num = n; return;}
-        int val1 = 0;
-        BigInteger bigP = BigInteger.valueOf(p);
-        while (n.mod(bigP).equals(BigInteger.ZERO)){
-            val1++;
-            n = n.divide(bigP);
+        this.field = PAdicField.of(p);
+        this.prec = Integer.MAX_VALUE;
+        if (n.bitLength() < 64) {
+            long m = n.longValue();
+            int val1 = 0;
+            if (m == 0) val1 = Integer.MAX_VALUE;
+            else if (p == 2) {
+                val1 = Long.numberOfTrailingZeros(m);
+                m >>= val1;
+            }
+            else while (m % p == 0){
+                val1++;
+                m /= p;
+            }
+            this.val = val1;
+            this.unit = m;
+            this.small = true;
+            return;
         }
+        int val1 = field.valuation(n);
+        n = field.removePower(n, val1);
         num = n;
-        if (num.equals(BigInteger.ZERO)) val1 = Integer.MAX_VALUE;
+        small = n.bitLength() < 64;
+        unit = small ? n.longValue() : 0;
         this.val = val1;
     }
 
@@ -126,7 +276,56 @@ public class PAdic {
      * @param p prime
      */
     public PAdic(int m, int p){
-        this(BigInteger.valueOf(m), p);
+        this.p = p;
+        this.field = PAdicField.of(p);
+        this.prec = Integer.MAX_VALUE;
+        int val1 = 0;
+        if (m == 0) val1 = Integer.MAX_VALUE;
+        else if (p == 2) {
+            val1 = Integer.numberOfTrailingZeros(m);
+            m >>= val1;
+        }
+        else while (m % p == 0){
+            val1++;
+            m /= p;
+        }
+        this.val = val1;
+        this.unit = m;
+        this.small = true;
+    }
+
+    /**
+     * Constructs p-adic number from unit part fitting in a long
+     * and its p-adic valuation (no validation is performed)
+     */
+    private PAdic(long unit, int val, PAdicField field){
+        this.unit = unit;
+        this.small = true;
+        if (unit == 0) this.val = Integer.MAX_VALUE;
+        else this.val = val;
+        this.p = field.getP();
+        this.field = field;
+        this.prec = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructs p-adic number n * p^(val) where n fits in a long
+     * (n is allowed to be divisible by p)
+     */
+    private static PAdic fromLong(long n, int val, PAdicField field){
+        if (n == 0) return new PAdic(0L, 0, field);
+        int p = field.getP();
+        if (p == 2) {
+            int zeros = Long.numberOfTrailingZeros(n);
+            if ((long) val + zeros >= Integer.MAX_VALUE) return new PAdic(0L, 0, field);
+            return new PAdic(n >> zeros, val + zeros, field);
+        }
+        while (n % p == 0){
+            n /= p;
+            val++;
+            if (val == Integer.MAX_VALUE) return new PAdic(0L, 0, field);
+        }
+        return new PAdic(n, val, field);
     }
 
     /**
@@ -138,8 +337,12 @@ public class PAdic {
     public PAdic(int n, int m, int p){
         PAdic x = (new PAdic(n, p)).div(new PAdic(m, p));
         this.num = x.num;
+        this.unit = x.unit;
+        this.small = x.small;
         this.val = x.val;
         this.p = p;
+        this.field = x.field;
+        this.prec = Integer.MAX_VALUE;
     }
 
     private static byte charToByte(char c){
@@ -148,34 +351,156 @@ public class PAdic {
         else throw new RuntimeException("Couldn't convert character: " + c + " to byte.");
     }
 
+    static char digitToChar(int d){
+        if (d < 10) return (char) ('0' + d);
+        return (char) ('A' + d - 10);
+    }
+
     public int getP() {
         return p;
     }
 
+    public PAdicField getField() {
+        return field;
+    }
+
+    BigInteger num(){
+        BigInteger n = num;
+        if (n == null) num = n = BigInteger.valueOf(unit);
+        return n;
+    }
+
+    boolean isSmall(){
+        return small;
+    }
+
+    long smallNum(){
+        return unit;
+    }
+
     public int getVal(){
         return val;
     }
 
+    /**
+     * @return absolute precision, this is known modulo p^(getAbsPrecision()),
+     * Integer.MAX_VALUE for exact numbers
+     */
+    public int getAbsPrecision(){
+        return prec;
+    }
+
+    public boolean isExact(){
+        return prec == Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns this known only modulo p^absPrecision, i.e. digits
+     * beyond absolute precision are dropped. Precision is never increased.
+     * @param absPrecision absolute precision
+     * @return truncated number
+     */
+    public PAdic withPrecision(int absPrecision){
+        if (absPrecision >= prec) return this;
+        if (val == Integer.MAX_VALUE || absPrecision <= val)
+            return new PAdic(BigInteger.ZERO, 0, true, Integer.MAX_VALUE, field, absPrecision);
+        int k = absPrecision - val;
+        long m = field.smallPow(k);
+        if (small && m > 0) return new PAdic(null, Math.floorMod(unit, m), true, val, field, absPrecision);
+        BigInteger n = field.reduce(num(), k);
+        boolean fits = n.bitLength() < 64;
+        return new PAdic(n, fits ? n.longValue() : 0, fits, val, field, absPrecision);
+    }
+
+    static int clamp(long absPrecision){
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, absPrecision));
+    }
+
+    /**
+     * Absolute precision of x + y computed with n digits of relative precision (as add does),
+     * where x has valuation v1 and is known modulo p^n1 and y has valuation v2 and is known
+     * modulo p^n2. Integer.MAX_VALUE if both are exact.
+     */
+    static int sumPrecision(int v1, int n1, int v2, int n2, int n){
+        if (n1 == Integer.MAX_VALUE && n2 == Integer.MAX_VALUE) return Integer.MAX_VALUE;
+        int sumPrec = Math.min(n1, n2);
+        long low = Math.min(v1 < sumPrec ? v1 : Long.MAX_VALUE / 2, v2 < sumPrec ? v2 : Long.MAX_VALUE / 2);
+        return clamp(Math.min(sumPrec, low + n));
+    }
+
+    /**
+     * Absolute precision of x * y computed with n digits of relative precision (as mul does),
+     * see sumPrecision. Zero known modulo p^k is treated as having valuation k.
+     */
+    static int productPrecision(int v1, int n1, int v2, int n2, int n){
+        if (n1 == Integer.MAX_VALUE && n2 == Integer.MAX_VALUE) return Integer.MAX_VALUE;
+        if ((v1 == Integer.MAX_VALUE && n1 == Integer.MAX_VALUE) || (v2 == Integer.MAX_VALUE && n2 == Integer.MAX_VALUE))
+            return Integer.MAX_VALUE;
+        long low1 = v1 == Integer.MAX_VALUE ? n1 : v1;
+        long low2 = v2 == Integer.MAX_VALUE ? n2 : v2;
+        return clamp(Math.min(Math.min(n1 + low2, n2 + low1), low1 + low2 + n));
+    }
+
+    /**
+     * Absolute precision of 1 / x computed with n digits of relative precision (as inv does),
+     * where x is non-zero, has valuation v and is known modulo p^k
+     */
+    static int inversePrecision(int v, int k, int n){
+        if (k == Integer.MAX_VALUE) return Integer.MAX_VALUE;
+        return clamp(Math.min(n, (long) k - v) - v);
+    }
+
+    /**
+     * Absolute precision of x / a = x * (1 / a), see productPrecision and inversePrecision
+     */
+    static int quotientPrecision(int vx, int nx, int va, int na, int n){
+        return productPrecision(vx, nx, -va, inversePrecision(va, na, n), n);
+    }
+
+    /**
+     * Returns compact binary encoding of this, see PAdicStore
+     * @return prime, valuation, absolute precision and unit as little-endian limbs
+     */
+    public byte[] toBytes(){
+        ByteBuffer out = ByteBuffer.allocate(PAdicStore.encodedSize(this)).order(ByteOrder.LITTLE_ENDIAN);
+        PAdicStore.encode(this, out);
+        return out.array();
+    }
+
+    /**
+     * Decodes p-adic number encoded by toBytes
+     * @param bytes encoding
+     * @return p-adic number
+     */
+    public static PAdic fromBytes(byte[] bytes){
+        return PAdicStore.decode(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0);
+    }
+
+    /**
+     * @return unit part n of this = n * p^(val)
+     */
+    public BigInteger getUnit(){
+        return num();
+    }
+
     public double norm(){
         return Math.pow(p, -val);
     }
 
+    /**
+     * @return precision of the context bound to the current thread (see PAdicMathContext)
+     */
     public static int getPrecision(){
-        return precision;
+        return PAdicMathContext.current().getPrecision();
     }
 
+    /**
+     * Sets default precision used by threads without bound context.
+     * To compute with different precisions concurrently use PAdicMathContext.call instead.
+     * @param n precision
+     */
     public static void setPrecision(int n){
-        if (n <= 0) throw new RuntimeException("Non-positive precision");
-        if (n > precision) updateNeeded = true;
-        precision = n;
-    }
-    
-    private BigInteger getAlmostZero(){
-        if (updateNeeded || !almostZero.mod(BigInteger.valueOf(p)).equals(BigInteger.ZERO)) {
-            almostZero = BigInteger.valueOf(p).pow(precision);
-            updateNeeded = false;
-        }
-        return almostZero;
+        PAdicMathContext.setDefault(new PAdicMathContext(n));
     }
 
     /**
@@ -184,27 +509,67 @@ public class PAdic {
      * We can see that it is easy to add 2 non divisible by p elements of Z_p
      * In general case of Q_p we can just multiply the arguments by proper
      * power of p and easily calculate p-adic valuation of the result.
+     * Absolute precision of the sum is the minimum of precisions of the arguments
+     * and they are truncated to it beforehand.
      * @param a p-adic number
      * @return sum
      */
     public PAdic add(PAdic a){
+        long start = PAdicMetrics.start();
+        PAdic out = addImpl(a);
+        PAdicMetrics.stop(PAdicMetrics.Operation.ADD, start);
+        return out;
+    }
+
+    private PAdic addImpl(PAdic a){
         if (p != a.p) throw new FieldError(p, a.p);
+        if (prec == Integer.MAX_VALUE && a.prec == Integer.MAX_VALUE) return sum(a);
+        int sumPrec = Math.min(prec, a.prec);
+        PAdic x = withPrecision(sumPrec), y = a.withPrecision(sumPrec);
+        return x.sum(y).withPrecision(clamp(Math.min(sumPrec, (long) Math.min(x.val, y.val) + getPrecision())));
+    }
+
+    /**
+     * Adds unit parts, ignoring absolute precisions
+     */
+    private PAdic sum(PAdic a){
+        if (a.val == Integer.MAX_VALUE) return this;
+        if (val == Integer.MAX_VALUE) return a;
         int diff = val - a.val;
-        BigInteger shift = BigInteger.valueOf(p).modPow(BigInteger.valueOf(Math.abs(diff)), this.getAlmostZero());
-        BigInteger sumNum;
-        if (diff < 0) sumNum = num.add(a.num.multiply(shift));
-        else sumNum = a.num.add(num.multiply(shift));
         int sumVal = Math.min(val, a.val);
-        if (sumVal == Integer.MAX_VALUE) return new PAdic(0, p);
-        if (sumNum.compareTo(BigInteger.ZERO) == 0) return new PAdic(0, p);
-        while (sumNum.mod(BigInteger.valueOf(p)).signum() == 0){
-            sumNum = sumNum.divide(BigInteger.valueOf(p));
-            sumVal ++;
-            if (sumVal == Integer.MAX_VALUE) return new PAdic(0, p);
+        if (small && a.small) {
+            PAdic sum = addSmall(a, diff, sumVal);
+            if (sum != null) return sum;
         }
-        return new PAdic(sumNum, sumVal, p);
+        BigInteger sumNum;
+        if (diff < 0) sumNum = num().add(field.mulShift(a.num(), -diff));
+        else sumNum = a.num().add(field.mulShift(num(), diff));
+        if (sumNum.signum() == 0) return new PAdic(0, p);
+        int v = field.valuation(sumNum);
+        if ((long) sumVal + v >= Integer.MAX_VALUE) return new PAdic(0, p);
+        return new PAdic(field.removePower(sumNum, v), sumVal + v, p);
     }
     
+    /**
+     * Performs addition on longs, gives exactly the same result as the BigInteger path.
+     * @return sum or null if an intermediate value doesn't fit in a long
+     */
+    private PAdic addSmall(PAdic a, int diff, int sumVal){
+        int k = Math.abs(diff);
+        long shift = 0;
+        if (k < getPrecision()) {
+            shift = field.smallPow(k);
+            if (shift < 0) return null;
+        }
+        long x = unit, y = a.unit;
+        if (diff < 0) { x = a.unit; y = unit; }
+        long prod = x * shift;
+        if (Math.multiplyHigh(x, shift) != (prod >> 63)) return null;
+        long sum = y + prod;
+        if (((y ^ sum) & (prod ^ sum)) < 0) return null;
+        return fromLong(sum, sumVal, field);
+    }
+
     public PAdic add(int a){
         return this.add(new PAdic(a, p));
     }
@@ -215,13 +580,43 @@ public class PAdic {
      * Similarly to addition we can just multiply nums and
      * then calculation of p-adic valuation of the result is straightforward
      * from its definition.
+     * Absolute precision of the product is min(N_a + v_b, N_b + v_a), only
+     * this many digits are computed.
      * @param a p-adic number
      * @return product
      */
     public PAdic mul(PAdic a){
-        BigInteger prodNum = this.num.multiply(a.num);
+        long start = PAdicMetrics.start();
+        PAdic out = mulImpl(a);
+        PAdicMetrics.stop(PAdicMetrics.Operation.MUL, start);
+        return out;
+    }
+
+    private PAdic mulImpl(PAdic a){
+        if (prec == Integer.MAX_VALUE && a.prec == Integer.MAX_VALUE) return product(a, getPrecision());
+        if ((val == Integer.MAX_VALUE && prec == Integer.MAX_VALUE) || (a.val == Integer.MAX_VALUE && a.prec == Integer.MAX_VALUE))
+            return new PAdic(0, p);
+        //zero known modulo p^N is treated as having valuation N
+        long low = val == Integer.MAX_VALUE ? prec : val;
+        long aLow = a.val == Integer.MAX_VALUE ? a.prec : a.val;
+        long prodPrec = Math.min(prec + aLow, a.prec + low);
+        long n = Math.min(getPrecision(), prodPrec - low - aLow);
+        if (val == Integer.MAX_VALUE || a.val == Integer.MAX_VALUE || n <= 0)
+            return new PAdic(0, p).withPrecision(clamp(prodPrec));
+        return product(a, (int) n).withPrecision(clamp(Math.min(prodPrec, low + aLow + n)));
+    }
+
+    /**
+     * Multiplies unit parts modulo p^n
+     */
+    private PAdic product(PAdic a, int n){
         int prodVal = this.val + a.val;
-        prodNum = prodNum.mod(this.getAlmostZero());
+        if (small && a.small) {
+            long m = field.smallPow(n);
+            if (m > 0) return new PAdic(field.mulMod(Math.floorMod(unit, m), Math.floorMod(a.unit, m), n), prodVal, field);
+        }
+        BigInteger prodNum = field.reduce(num(), n).multiply(field.reduce(a.num(), n));
+        prodNum = field.reduce(prodNum, n);
         return new PAdic(prodNum, prodVal, p);
     }
 
@@ -235,9 +630,30 @@ public class PAdic {
      * @return negation
      */
     public PAdic neg(){
-        BigInteger negNum = this.num;
-        negNum = this.getAlmostZero().subtract(negNum);
-        PAdic out = new PAdic(negNum, this.val, p);
+        long start = PAdicMetrics.start();
+        PAdic out = negImpl();
+        PAdicMetrics.stop(PAdicMetrics.Operation.NEG, start);
+        return out;
+    }
+
+    private PAdic negImpl(){
+        if (prec == Integer.MAX_VALUE) return negation(getPrecision());
+        if (val == Integer.MAX_VALUE) return this;
+        int n = (int) Math.min(getPrecision(), (long) prec - val);
+        return negation(n).withPrecision(clamp(Math.min(prec, (long) val + n)));
+    }
+
+    /**
+     * Negates unit part modulo p^n
+     */
+    private PAdic negation(int n){
+        if (small) {
+            long m = field.smallPow(n);
+            long negUnit = m - unit;
+            if (m > 0 && ((m ^ unit) & (m ^ negUnit)) >= 0) return new PAdic(negUnit, this.val, field);
+        }
+        BigInteger negNum = this.num();
+        negNum = field.pow(n).subtract(negNum);
         return new PAdic(negNum, this.val, p);
     }
     
@@ -248,119 +664,279 @@ public class PAdic {
         return this.sub(new PAdic(a, p));
     }
     
+    /**
+     * Returns digits of unit part, computed by divide and conquer (see PAdicField.digits)
+     * @return array of precision digits, starting from the least significant one
+     */
     public int[] getDigits(){
-        BigInteger copy = num;
-        BigInteger bigP = BigInteger.valueOf(p);
-        int[] digits = new int[precision];
-        for (int i = 0; i < precision; i++){
-            BigInteger rem = copy.mod(bigP);
-            digits[i] = rem.intValue(); 
-            copy = copy.subtract(rem).divide(bigP);
-        }
-        return digits;
+        return field.digits(num(), getPrecision());
     }
 
-    private int pow(int base, int exp){
-        if (exp == 0) return 1;
-        if (exp % 2 == 0) return pow((base * base), exp / 2);
-        return  (base * pow((base * base), exp / 2) );
-    }
-    
-    private int powModulo(int base, int exp){
-        base = base % p;
-        if (exp == 0) return 1;
-        if (exp % 2 == 0) return powModulo((base * base) % p, exp / 2) % p;
-        return  (base * powModulo((base * base) % p, exp / 2) ) % p;
+    /**
+     * Returns digits of unit part lazily, so reading only a few first
+     * digits doesn't cost a full expansion.
+     * @return iterator over precision digits, starting from the least significant one
+     */
+    public PrimitiveIterator.OfInt digits(){
+        return field.digitIterator(num(), getPrecision());
     }
-    
-    private int inverseModulo(int n){
-        if (n % p == 0) throw new RuntimeException("Zero division");
-        return powModulo(n, p - 2);
+
+    private long inverseModulo(long n){
+        n = Math.floorMod(n, (long) p);
+        if (n == 0) throw new RuntimeException("Zero division");
+        return PAdicPower.powMod(n, BigInteger.valueOf(p - 2), 1, field);
     }
-    
-    private int logFloor2(int n){
-        int out = 0;
-        while (n > 1){
-            n = n / 2;
-            out++;
-        }
-        return out;
+
+    /**
+     * Returns precisions visited by Newton iteration lifting from 1 to n digits,
+     * e.g. 1, 2, 4, 7, 13, 25 for n = 25. Every step (at most) doubles
+     * the precision and the last one is exactly n, so no work is wasted on
+     * digits that would be thrown away.
+     */
+    static int[] newtonSteps(int n){
+        int count = 1;
+        for (int k = n; k > 1; k = (k + 1) / 2) count++;
+        int[] steps = new int[count];
+        for (int i = count - 1, k = n; i >= 0; i--, k = (k + 1) / 2) steps[i] = k;
+        return steps;
     }
 
     /**
      * Firstly we calculate U_0 - inverse mod p of non-divisible by p
-     * element of Z_p and then we raise it to inverse mod p^(2^n)
-     * using recurrence relation U_{n_1} = U_n(2 - a*U_n), where a
-     * is number to be inverted. After that valuation of the result
-     * can be easily calculated
+     * element of Z_p and then we lift it to inverse mod p^k
+     * using recurrence relation U_{n+1} = U_n(2 - a*U_n), where a
+     * is number to be inverted. Every step doubles number of correct
+     * digits, so we compute U_{n+1} modulo p^(2k) only, capping it at
+     * the precision. After that valuation of the result
+     * can be easily calculated. Absolute precision of the inverse is N - 2v,
+     * i.e. relative precision is kept.
      * @return inverse
      */
     public PAdic inv(){
-        int n = logFloor2(precision) + 1;
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.INV, p, getPrecision());
+        PAdic out = invImpl();
+        probe.stop();
+        return out;
+    }
+
+    private PAdic invImpl(){
+        if (prec == Integer.MAX_VALUE) return inverse(getPrecision());
+        if (val == Integer.MAX_VALUE) throw new RuntimeException("Division by zero");
+        int n = (int) Math.min(getPrecision(), (long) prec - val);
+        return inverse(n).withPrecision(clamp((long) n - val));
+    }
+
+    /**
+     * Inverts unit part modulo p^n
+     */
+    private PAdic inverse(int n){
+        //the 2-adic paths below would return zero instead of failing
+        if (val == Integer.MAX_VALUE) throw new RuntimeException("Zero division");
+        int[] steps = newtonSteps(n);
+        if (small && field.smallPow(n) > 0) {
+            long a = Math.floorMod(unit, field.smallPow(n));
+            //inverse modulo 2^64 reduced modulo 2^n
+            if (p == 2) return new PAdic(TwoAdic.inverse64(a) & (field.smallPow(n) - 1), -val, field);
+            long inv = inverseModulo(a);
+            for (int i = 1; i < steps.length; i++){
+                int k = steps[i];
+                long m = field.smallPow(k);
+                long t = field.mulMod(a % m, inv, k);
+                inv = field.mulMod(inv, Math.floorMod(2 - t, m), k);
+            }
+            return new PAdic(inv, -val, field);
+        }
+        if (p == 2) return new PAdic(TwoAdic.inverse(field.reduce(num(), n), n), -val, p);
         BigInteger TWO = BigInteger.valueOf(2);
-        BigInteger pPow = BigInteger.valueOf(p);
-        BigInteger inv = BigInteger.valueOf(this.inverseModulo(num.mod(BigInteger.valueOf(p)).intValue()));
-        for (int i = 0; i < n; i++){
-            pPow = pPow.pow(2);
-            inv = inv.multiply(TWO.subtract(num.multiply(inv))).mod(pPow);
+        BigInteger a = field.reduce(num(), n);
+        BigInteger inv = BigInteger.valueOf(this.inverseModulo(a.mod(field.getBigP()).longValue()));
+        for (int i = 1; i < steps.length; i++){
+            BigInteger pPow = field.pow(steps[i]);
+            BigInteger t = a.mod(pPow).multiply(inv).mod(pPow);
+            inv = inv.multiply(TWO.subtract(t)).mod(pPow);
         }
         int invVal = -val;
         return new PAdic(inv, invVal, p);
     }
+
+    /**
+     * Inverts all given numbers using Montgomery's trick: only one inversion
+     * is performed, the rest is done with 3(n - 1) multiplications.
+     * @param a array of non-zero p-adic numbers of the same Q_p
+     * @return array of inverses
+     */
+    public static PAdic[] invAll(PAdic[] a){
+        PAdic[] out = new PAdic[a.length];
+        if (a.length == 0) return out;
+        int p = a[0].p;
+        PAdic[] prefix = new PAdic[a.length];
+        PAdic prod = null;
+        for (int i = 0; i < a.length; i++){
+            if (a[i].p != p) throw new FieldError(p, a[i].p);
+            if (a[i].val == Integer.MAX_VALUE) throw new RuntimeException("Division by zero");
+            prod = i == 0 ? a[0] : prod.mul(a[i]);
+            prefix[i] = prod;
+        }
+        PAdic inv = prod.inv();
+        for (int i = a.length - 1; i > 0; i--){
+            out[i] = inv.mul(prefix[i - 1]);
+            inv = inv.mul(a[i]);
+        }
+        out[0] = inv;
+        return out;
+    }
     
     public PAdic div(PAdic a){
-        if (a.num.equals(BigInteger.ZERO)) throw new RuntimeException("Division by zero");
+        if (a.num().equals(BigInteger.ZERO)) throw new RuntimeException("Division by zero");
         return this.mul(a.inv());
     }
 
     public PAdic div(int a){
         return this.div(new PAdic(a, p));
     }
+
+    /**
+     * Returns exponential of this, see PAdicFunctions
+     * @return exp(this), requires v(this) > 1 / (p - 1)
+     */
+    public PAdic exp(){
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.EXP, p, getPrecision());
+        PAdic out = PAdicFunctions.exp(this);
+        probe.stop();
+        return out;
+    }
+
+    /**
+     * Returns Iwasawa logarithm of this (log p = 0), see PAdicFunctions
+     * @return log(this)
+     */
+    public PAdic log(){
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.LOG, p, getPrecision());
+        PAdic out = PAdicFunctions.log(this);
+        probe.stop();
+        return out;
+    }
+
+    /**
+     * Returns square root of this, see PAdicFunctions
+     * @return square root
+     */
+    public PAdic sqrt(){
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.SQRT, p, getPrecision());
+        PAdic out = PAdicFunctions.sqrt(this);
+        probe.stop();
+        return out;
+    }
+
+    /**
+     * Returns this^e = exp(e * log(this)), defined for principal units, i.e.
+     * this = 1 mod p (1 mod 4 for p = 2), and e in Z_p
+     * @param e exponent
+     * @return power
+     */
+    public PAdic pow(PAdic e){
+        if (p != e.p) throw new FieldError(p, e.p);
+        if (e.val < 0) throw new RuntimeException("Exponent " + e + " is not in Z_" + p);
+        if (val != 0 || field.reduce(num(), p == 2 ? 2 : 1).intValue() != 1)
+            throw new RuntimeException(this + " is not a principal unit of Q_" + p);
+        if (e.val == Integer.MAX_VALUE) return e.isExact() ? new PAdic(1, p) : new PAdic(1, p).withPrecision(e.prec);
+        return e.mul(log()).exp();
+    }
+
+    /**
+     * Returns this^e. For many powers of the same base see PAdicPower.
+     * IMPLEMENTATION:
+     * Valuation is multiplied by e and the unit part is raised to e modulo p^n with
+     * sliding windows, n is the computation precision (or relative precision of
+     * inexact numbers, which is kept by the power). Negative powers are inverses
+     * of positive ones.
+     * @param e exponent
+     * @return power
+     */
+    public PAdic pow(BigInteger e){
+        return pow(e, null);
+    }
+
+    /**
+     * @param e exponent
+     * @return this^e
+     */
+    public PAdic pow(long e){
+        return pow(BigInteger.valueOf(e));
+    }
+
+    /**
+     * Returns this^e, unit part is raised with given table of powers of this if it is not null
+     */
+    PAdic pow(BigInteger e, PAdicPower table){
+        if (e.signum() < 0) return pow(e.negate(), table).inv();
+        if (e.signum() == 0) return new PAdic(1, p);
+        if (val == Integer.MAX_VALUE) return prec == Integer.MAX_VALUE ? this : new PAdic(0, p).withPrecision(clamp(scale(prec, e)));
+        long powVal = scale(val, e);
+        if (powVal <= Integer.MIN_VALUE) throw new RuntimeException("Valuation of " + this + "^" + e + " is out of range");
+        if (powVal >= Integer.MAX_VALUE)
+            return prec == Integer.MAX_VALUE ? new PAdic(0, p) : new PAdic(0, p).withPrecision(Integer.MAX_VALUE - 1);
+        int n = prec == Integer.MAX_VALUE ? getPrecision() : (int) Math.min(getPrecision(), (long) prec - val);
+        BigInteger u;
+        if (table != null && e.bitLength() >= 2 * PAdicPower.FIXED_WINDOW) u = table.unitPow(e, n);
+        else if (field.smallPow(n) > 0) {
+            long a = small ? Math.floorMod(unit, field.smallPow(n)) : field.reduce(num(), n).longValue();
+            u = BigInteger.valueOf(PAdicPower.powMod(a, e, n, field));
+        }
+        else u = num().modPow(e, field.pow(n));
+        PAdic out = new PAdic(u, (int) powVal, p);
+        return prec == Integer.MAX_VALUE ? out : out.withPrecision(clamp(powVal + n));
+    }
+
+    /**
+     * @return a * e, or Long.MIN_VALUE / Long.MAX_VALUE if it is outside of int range
+     */
+    private static long scale(int a, BigInteger e){
+        BigInteger product = BigInteger.valueOf(a).multiply(e);
+        if (product.bitLength() < 32) return product.longValue();
+        return product.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
     
+    /**
+     * Refines root of given polynomial using Newton's method, see NewtonSolver
+     * @param p polynomial
+     * @param x approximation of the root
+     * @param prime prime
+     * @return root
+     */
     public static PAdic Newton(Poly p, int x, int prime){
-        PAdic prev = new PAdic(x, prime), curr = new PAdic(0, prime);
-        Poly q = p.derivative();
-        if (q.evaluate(x) == 0) throw new ArithmeticException("Division by 0");
-        PAdic zero = new PAdic(0, 7);
-        for (int i = 0; i < PAdic.precision; i++){
-            curr = prev.sub(p.evaluate(prev).div(q.evaluate(prev)));
-            prev = curr;
-        }
-        return curr;
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.NEWTON, prime, getPrecision());
+        PAdic out = NewtonSolver.lift(p, x, prime);
+        probe.stop();
+        return out;
     }
     
     /**
-     * Searches for arbitrary root of given polynomial using
-     * Generalized Hensel Lemma.
+     * Searches for arbitrary root of given polynomial in Z_p (see RootFinder).
      * @param p polynomial
-     * @param n highest n for which GHL is checked before giving up
+     * @param n multiple roots which are not separated modulo p^(2n + 2) are given up on
      * @param prime prime         
      * @return arbitrary root or null in case of giving up. Please note that returining null doesn't
      * mean that the root doesn't exist. 
      */
     public static PAdic GHL(Poly p, int n, int prime){
-        Poly q = p.derivative();
-        int pow = 1, x = 1;
-        LinkedList<Integer> prev = new LinkedList<Integer>();
-        LinkedList<Integer> curr = new LinkedList<Integer>();
-        curr.add(0);
-        for (int i = 0; i <= n; i++){
-            for (int k = 0; k < 2; k++) {
-                prev = curr;
-                curr = new LinkedList<Integer>();
-                for (int r : prev) for (int j = 0; j < prime; j++){ 
-                    if (p.evaluate(r + j * pow, pow * prime) == 0) curr.add(r + j * pow);
-                }
-                pow *= prime;
-            }
-            if (prev.isEmpty()) throw new RootDoesntExist(p, prime);
-            for (int r : prev){
-                int v = q.evaluate(r, x * prime);
-                if (v % (x * prime) != 0 && v % x == 0) return Newton(p, r, prime);
-            }
-            x *= prime;
-        }
-        return null;
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.GHL, prime, getPrecision());
+        PAdic out = RootFinder.findRoot(p, 2 * n + 2, prime);
+        probe.stop();
+        return out;
+    }
+
+    /**
+     * Returns all roots of given polynomial in Q_p (see RootFinder).
+     * @param p polynomial
+     * @param prime prime
+     * @return list of roots
+     */
+    public static List<PAdic> roots(Poly p, int prime){
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.ROOTS, prime, getPrecision());
+        List<PAdic> out = RootFinder.roots(p, prime);
+        probe.stop();
+        return out;
     }
 
     /**
@@ -370,82 +946,114 @@ public class PAdic {
      * @param representatives (array of size p of elements of Z_p, i-th representative is to be congruent to i mod p) 
      */
     public void printRepresented(int digits, PAdic[] representatives){
-        if (p > 31) { System.out.println("Error, p > 31"); return; }
-        for (int i = 0; i < representatives.length; i++){
-            representatives[i] = new PAdic(representatives[i].num.mod(this.getAlmostZero()), this.p); 
-        }
+        printRepresented(digits, representatives, System.out);
+    }
+
+    /**
+     * Writes digits of p-adic number with respect to given set of representatives
+     * followed by a new line, see printRepresented(int, PAdic[])
+     * @param digits number of digits to be written
+     * @param representatives representatives of digits
+     * @param out destination, e.g. a buffered writer
+     */
+    public void printRepresented(int digits, PAdic[] representatives, Appendable out){
+        if (p > 31) { println(out, "Error, p > 31"); return; }
         StringBuilder s = new StringBuilder();
-        BigInteger copy = num;
-        BigInteger bigP = BigInteger.valueOf(p);
-        BigInteger shift = bigP.modPow(BigInteger.valueOf(representatives[0].val) , this.getAlmostZero());
+        BigInteger bigP = field.getBigP();
         int k = val;
         for (int i = 0; i < k && i < digits; i++) {s.append('0'); digits--;}
+        //i-th digit depends only on the number modulo p^(i+1), so the whole
+        //computation can be done modulo p^digits instead of p^precision
+        BigInteger mod = field.pow(Math.max(digits, 0));
+        BigInteger[] reps = new BigInteger[representatives.length];
+        for (int i = 0; i < reps.length; i++) reps[i] = field.reduce(representatives[i].num()).mod(mod);
+        reps[0] = reps[0].multiply(field.shift(representatives[0].val)).mod(mod);
+        BigInteger copy = num().mod(mod);
         for (int i = 0; i < digits; i++){
-            BigInteger rem = copy.mod(bigP);
-            if (rem.compareTo(BigInteger.valueOf(10)) < 0) s.append(rem.toString());
-            else s.append((char) ('A' + rem.intValue() - 10));
-            if (copy.compareTo(this.getAlmostZero()) < 0) copy = copy.add(this.getAlmostZero());
-            if (rem.equals(BigInteger.ZERO)) copy = copy.subtract(representatives[0].num.multiply(shift)).divide(bigP);
-            else copy = copy.subtract(representatives[rem.intValue()].num).divide(bigP);
+            int rem = copy.mod(bigP).intValue();
+            s.append(digitToChar(rem));
+            mod = mod.divide(bigP);
+            copy = copy.subtract(reps[rem]).divide(bigP).mod(mod);
             k++;
             if (k == 0) s.append('.');
         }
         s.reverse();
-        System.out.println(s);
+        println(out, s);
+    }
+
+    private static void println(Appendable out, CharSequence s){
+        try {
+            out.append(s).append('\n');
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Returnes Teichmuller representatives for Q_this.p
+     * Returnes Teichmuller representatives for Q_this.p.
+     * Representatives are cached (see TeichmullerCache), so repeated calls are cheap.
      * @param p prime
      * @return Teichmuller representatives
      */
     public static PAdic[] getTeichmullerRepresentatives(int p){
-        PAdic[] out = new PAdic[p];
-        int[] coeff = new int[p + 1];
-        coeff[1] = -1;
-        coeff[p] = 1;
-        Poly poly = new Poly(coeff);
-        for (int i = 0; i < p; i++) out[i] = Newton(poly, i, p);
-        return out;
+        return TeichmullerCache.get(p, getPrecision());
     }
     
     public void print(int digits){
-        if (p > 31) { System.out.println("Error, p > 31"); return; }
+        print(digits, System.out);
+    }
+
+    /**
+     * Writes given number of digits followed by a new line
+     * @param digits number of digits
+     * @param out destination, e.g. a buffered writer
+     */
+    public void print(int digits, Appendable out){
+        if (p > 31) { println(out, "Error, p > 31"); return; }
+        println(out, toString(digits));
+    }
+
+    /**
+     * Returns given number of digits (including leading zeros), as print does
+     * @param digits number of digits
+     * @return digits, the most significant first
+     */
+    public String toString(int digits){
+        if (p > 31) return "p > 31";
         StringBuilder s = new StringBuilder();
-        BigInteger copy = num;
-        BigInteger bigP = BigInteger.valueOf(p);
         int k = val;
         for (int i = 0; i < k && i < digits; i++) {s.append('0'); digits--;}
+        int[] d = field.digits(num(), Math.max(digits, 0));
         for (int i = 0; i < digits; i++){
-            BigInteger rem = copy.mod(bigP);
-            if (rem.compareTo(BigInteger.valueOf(10)) < 0) s.append(rem.toString());
-            else s.append((char) ('A' + rem.intValue() - 10));
-            copy = copy.subtract(rem).divide(bigP);
+            s.append(digitToChar(d[i]));
             k++;
             if (k == 0) s.append('.');
         }
         s.reverse();
-        System.out.println(s);
+        return s.toString();
     }
 
     @Override
     public String toString() {
-        if (num.equals(BigInteger.ZERO)) return "0";
+        if (num().equals(BigInteger.ZERO)) return "0";
         if (p > 31) return "p > 31";
         StringBuilder s = new StringBuilder();
-        BigInteger copy = num;
-        BigInteger bigP = BigInteger.valueOf(p);
         int k = val;
         int digits = 284;
         for (int i = 0; i < k && i < digits; i++) {s.append('0'); digits--;}
+        int[] d = field.digits(num(), digits);
+        //number of digits of num, expansion of negative num never ends
+        int length = digits + 1;
+        if (num().signum() > 0 && num().compareTo(field.pow(digits)) < 0) {
+            length = digits;
+            while (d[length - 1] == 0) length--;
+        }
         for (int i = 0; i < digits; i++){
-            BigInteger rem = copy.mod(bigP);
-            if (rem.compareTo(BigInteger.valueOf(10)) < 0) s.append(rem.toString());
-            else s.append((char) ('A' + rem.intValue() - 10));
-            copy = copy.subtract(rem).divide(bigP);
+            s.append(digitToChar(d[i]));
             k++;
             if (k == 0) s.append('.');
-            if (copy.equals(BigInteger.ZERO)){
+            if (i + 1 >= length){
                 if (k == 0) s.append('0');
                 break;
             }
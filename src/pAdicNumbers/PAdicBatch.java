@@ -0,0 +1,402 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Streaming batch front-end: reads a stream of jobs, computes them in parallel and writes
+ * results in the order of the jobs.
+ * Text jobs are lines "p op a [b]" where a, b are digits of p-adic numbers (as accepted by
+ * PAdic(CharSequence, int)), op is one of add, sub, mul, div, neg, inv, sqrt, exp, log or
+ * pow (b is then a decimal exponent). Like PAdic.toString(int), text jobs support p <= 31
+ * only. Blank lines and lines starting with # are skipped, every other line gives one
+ * output line: digits of the result (see PAdic.toString(int)) or "error: message" if
+ * the job fails. With inexact operands (--inexact) a and b are known only to their digits
+ * (see PAdic.parseInexact) and results are printed only to the digits that are known.
+ * Binary jobs are records of a PAdicStore stream with one operation for all of them:
+ * unary operations are applied to every record, binary ones to pairs of consecutive
+ * records, results are written as a PAdicStore stream, so any prime can be used.
+ * Usage from the command line:
+ * <pre>
+ *     java pAdicNumbers.PAdicBatch [--precision N] [--digits D] [--threads T] [--binary op] [--exponent e] [--inexact] [in [out]]
+ * </pre>
+ * (standard input and output by default).
+ * IMPLEMENTATION:
+ * Input is read through NIO channels into a reused buffer and cut into chunks of jobs.
+ * Every chunk is a task on a fork-join pool computing with the context given to the
+ * constructor. At most 2 * threads chunks are in flight: before reading more, the reader
+ * waits for the oldest chunk and writes its results, which gives backpressure (memory
+ * is bounded however large the input is) and keeps the output in the order of the input.
+ * Results go through one buffer, written to the output channel when full.
+ */
+public final class PAdicBatch {
+    private static final int BUFFER = 1 << 16;
+    private static final int CHUNK = 256; //< jobs per task
+
+    private final PAdicMathContext context;
+    private final int digits; //< digits of text results
+    private final int threads;
+    private final boolean inexact; //< operands of text jobs are known only to their digits
+
+    /**
+     * Binary operations on PAdicStore records
+     */
+    public enum Operation {
+        ADD(2), SUB(2), MUL(2), DIV(2), NEG(1), INV(1), SQRT(1), EXP(1), LOG(1), POW(1);
+
+        private final int arity;
+
+        Operation(int arity){
+            this.arity = arity;
+        }
+
+        public int getArity(){
+            return arity;
+        }
+
+        /**
+         * @param name name of the operation (case-insensitive)
+         * @return operation
+         */
+        public static Operation of(String name){
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            }
+            catch (IllegalArgumentException e){
+                throw new RuntimeException("Unknown operation: " + name);
+            }
+        }
+    }
+
+    /**
+     * @param context context of all the computations
+     * @param digits number of digits of text results
+     * @param threads number of worker threads
+     */
+    public PAdicBatch(PAdicMathContext context, int digits, int threads){
+        this(context, digits, threads, false);
+    }
+
+    /**
+     * @param context context of all the computations
+     * @param digits number of digits of text results
+     * @param threads number of worker threads
+     * @param inexact whether operands of text jobs are known only to their digits
+     */
+    public PAdicBatch(PAdicMathContext context, int digits, int threads, boolean inexact){
+        if (digits <= 0 || threads <= 0) throw new RuntimeException("Non-positive number of digits or threads");
+        this.context = context;
+        this.digits = digits;
+        this.threads = threads;
+        this.inexact = inexact;
+    }
+
+    /**
+     * Batch with the current context, results with as many digits as is the precision,
+     * one thread per processor
+     */
+    public PAdicBatch(){
+        this(PAdicMathContext.current(), PAdicMathContext.current().getPrecision(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes text jobs, see the description of the class
+     * @param in source of jobs
+     * @param out destination of results
+     * @return number of jobs
+     * @throws IOException if reading or writing fails
+     */
+    public long runText(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        LineReader lines = new LineReader(in);
+        Sink sink = new Sink(out);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayDeque<ForkJoinTask<String>> pending = new ArrayDeque<>();
+        long count = 0;
+        try {
+            while (true){
+                List<String> chunk = new ArrayList<>(CHUNK);
+                String line;
+                while (chunk.size() < CHUNK && (line = lines.next()) != null){
+                    String job = line.trim();
+                    if (!job.isEmpty() && job.charAt(0) != '#') chunk.add(job);
+                }
+                if (chunk.isEmpty()) break;
+                count += chunk.size();
+                if (pending.size() == 2 * threads) sink.write(pending.poll().join());
+                pending.add(pool.submit(() -> context.call(() -> textChunk(chunk))));
+            }
+            while (!pending.isEmpty()) sink.write(pending.poll().join());
+            sink.flush();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    private String textChunk(List<String> jobs){
+        StringBuilder s = new StringBuilder();
+        for (String job : jobs){
+            try {
+                PAdic x = text(job);
+                s.append(x.toString(x.isExact() ? digits : knownDigits(x)));
+            }
+            catch (RuntimeException | FieldError e){
+                s.append("error: ").append(e.getMessage());
+            }
+            s.append('\n');
+        }
+        return s.toString();
+    }
+
+    /**
+     * @return number of digits of x printed by toString(int) that are known, at most digits
+     */
+    private int knownDigits(PAdic x){
+        return (int) Math.max(0, Math.min(digits, (long) x.getAbsPrecision() - Math.min(x.getVal(), 0)));
+    }
+
+    private PAdic text(String job){
+        String[] t = job.split("\\s+");
+        if (t.length < 3) throw new RuntimeException("Expected \"p op a [b]\", got: " + job);
+        int p;
+        try {
+            p = Integer.parseInt(t[0]);
+        }
+        catch (NumberFormatException e){
+            throw new RuntimeException("Invalid prime: " + t[0]);
+        }
+        if (p > 31) throw new RuntimeException("Text jobs support p <= 31 only, got " + p + " (use --binary)");
+        Operation op = Operation.of(t[1]);
+        int operands = op == Operation.POW ? 2 : op.getArity();
+        if (t.length != 2 + operands) throw new RuntimeException(op.name().toLowerCase(Locale.ROOT) + " takes " + operands + " operand(s)");
+        PAdic a = operand(t[2], p);
+        if (op == Operation.POW) return a.pow(new BigInteger(t[3]));
+        return apply(op, a, operands == 2 ? operand(t[3], p) : null, null);
+    }
+
+    private PAdic operand(String digits, int p){
+        return inexact ? PAdic.parseInexact(digits, p) : new PAdic(digits, p);
+    }
+
+    private static PAdic apply(Operation op, PAdic a, PAdic b, BigInteger exponent){
+        switch (op){
+            case ADD: return a.add(b);
+            case SUB: return a.sub(b);
+            case MUL: return a.mul(b);
+            case DIV: return a.div(b);
+            case NEG: return a.neg();
+            case INV: return a.inv();
+            case SQRT: return a.sqrt();
+            case EXP: return a.exp();
+            case LOG: return a.log();
+            case POW: return a.pow(exponent);
+            default: throw new RuntimeException("Unknown operation: " + op);
+        }
+    }
+
+    /**
+     * Computes binary jobs: op is applied to every record (unary operations) or to pairs
+     * of consecutive records (binary operations) of in, results are written to out.
+     * Unlike text jobs, a failure of any job fails the whole run and out is then closed
+     * without the index and the trailer, so it is not a valid store.
+     * @param in PAdicStore stream
+     * @param out destination of PAdicStore stream of results
+     * @param op operation
+     * @param exponent exponent of POW, ignored otherwise
+     * @return number of jobs
+     * @throws IOException if reading or writing fails
+     */
+    public long runBinary(ReadableByteChannel in, WritableByteChannel out, Operation op, BigInteger exponent) throws IOException {
+        if (op == Operation.POW && exponent == null) throw new RuntimeException("pow needs an exponent");
+        int arity = op.getArity();
+        PAdicStore.Reader reader = new PAdicStore.Reader(in);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayDeque<ForkJoinTask<PAdic[]>> pending = new ArrayDeque<>();
+        long count = 0;
+        PAdicStore.Writer writer = new PAdicStore.Writer(out);
+        try {
+            while (true){
+                List<PAdic> chunk = new ArrayList<>(CHUNK * arity);
+                while (chunk.size() < CHUNK * arity && reader.hasNext()) chunk.add(reader.next());
+                if (chunk.isEmpty()) break;
+                if (chunk.size() % arity != 0) throw new RuntimeException("Odd number of records for a binary operation");
+                long first = count;
+                count += chunk.size() / arity;
+                if (pending.size() == 2 * threads) write(writer, pending.poll().join());
+                pending.add(pool.submit(() -> context.call(() -> binaryChunk(chunk, op, exponent, first))));
+            }
+            while (!pending.isEmpty()) write(writer, pending.poll().join());
+            writer.close();
+        }
+        catch (Throwable e){
+            //a failed run must not look like a complete store
+            try {
+                writer.abort();
+            }
+            catch (IOException suppressed){
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    private static PAdic[] binaryChunk(List<PAdic> records, Operation op, BigInteger exponent, long first){
+        int arity = op.getArity();
+        PAdic[] out = new PAdic[records.size() / arity];
+        for (int i = 0; i < out.length; i++){
+            try {
+                PAdic a = records.get(arity * i);
+                out[i] = apply(op, a, arity == 2 ? records.get(arity * i + 1) : null, exponent);
+            }
+            catch (RuntimeException | FieldError e){
+                throw new RuntimeException("Job " + (first + i) + ": " + e.getMessage(), e);
+            }
+        }
+        return out;
+    }
+
+    private static void write(PAdicStore.Writer writer, PAdic[] results) throws IOException {
+        for (PAdic x : results) writer.write(x);
+    }
+
+    /**
+     * Splits bytes of a channel into lines (\n or \r\n), reusing one buffer
+     */
+    private static final class LineReader {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+        private boolean eof = false;
+
+        LineReader(ReadableByteChannel channel){
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        /**
+         * @return next line without the terminator, null at the end of the input
+         */
+        String next() throws IOException {
+            int from = buffer.position();
+            int scanned = from;
+            while (true){
+                byte[] b = buffer.array();
+                for (int i = scanned; i < buffer.limit(); i++){
+                    if (b[i] != '\n') continue;
+                    int end = i > from && b[i - 1] == '\r' ? i - 1 : i;
+                    buffer.position(i + 1);
+                    return new String(b, from, end - from, StandardCharsets.UTF_8);
+                }
+                if (eof) {
+                    if (from == buffer.limit()) return null;
+                    buffer.position(buffer.limit());
+                    return new String(b, from, buffer.limit() - from, StandardCharsets.UTF_8);
+                }
+                scanned = buffer.limit() - from;
+                //keep the unfinished line at the start, grow if it fills the whole buffer
+                buffer.compact();
+                if (!buffer.hasRemaining()) buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer.flip());
+                eof = channel.read(buffer) < 0;
+                buffer.flip();
+                from = 0;
+            }
+        }
+    }
+
+    /**
+     * Buffered text output to a channel
+     */
+    private static final class Sink {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+
+        Sink(WritableByteChannel channel){
+            this.channel = channel;
+        }
+
+        void write(String s) throws IOException {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < b.length; ){
+                if (!buffer.hasRemaining()) flush();
+                int n = Math.min(buffer.remaining(), b.length - i);
+                buffer.put(b, i, n);
+                i += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int precision = PAdic.getPrecision(), digits = -1, threads = Runtime.getRuntime().availableProcessors();
+        boolean inexact = false;
+        Operation binary = null;
+        BigInteger exponent = null;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++){
+            switch (args[i]){
+                case "--precision": precision = Integer.parseInt(args[++i]); break;
+                case "--digits": digits = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--binary": binary = Operation.of(args[++i]); break;
+                case "--exponent": exponent = new BigInteger(args[++i]); break;
+                case "--inexact": inexact = true; break;
+                default: files.add(args[i]);
+            }
+        }
+        if (files.size() > 2) throw new RuntimeException("Usage: PAdicBatch [--precision N] [--digits D] [--threads T] [--binary op] [--exponent e] [--inexact] [in [out]]");
+        PAdicBatch batch = new PAdicBatch(new PAdicMathContext(precision), digits > 0 ? digits : precision, threads, inexact);
+        try (ReadableByteChannel in = files.size() > 0 ? FileChannel.open(Paths.get(files.get(0)), StandardOpenOption.READ) : Channels.newChannel(System.in);
+             WritableByteChannel out = files.size() > 1 ? open(Paths.get(files.get(1))) : Channels.newChannel(System.out)){
+            if (binary != null) batch.runBinary(in, out, binary, exponent);
+            else batch.runText(in, out);
+        }
+    }
+
+    private static WritableByteChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+}
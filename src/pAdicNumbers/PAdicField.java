@@ -0,0 +1,401 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Context shared by all p-adic numbers of a given Q_p.
+ * Holds table of powers of p (filled lazily), so that arithmetic
+ * doesn't have to recompute p^k on every call. Contexts are created
+ * once per prime and can be freely shared between threads.
+ */
+public final class PAdicField {
+    private static final int SMALL_PRIMES = 256;
+    private static final PAdicField[] smallFields = new PAdicField[SMALL_PRIMES];
+    private static final ConcurrentHashMap<Integer, PAdicField> fields = new ConcurrentHashMap<>();
+
+    private final int p;
+    private final BigInteger bigP;
+    private volatile BigInteger[] powers; //< powers[k] = p^k or null if not computed yet
+    private volatile BigInteger[] squarePowers; //< squarePowers[k] = p^(2^k)
+    private final ConcurrentHashMap<Integer, LimbModulus> limbModuli = new ConcurrentHashMap<>();
+
+    //Moduli p^k below 2^61 are additionally kept as longs, which allows PAdic
+    //to do arithmetic on machine words (with Barrett reduction) whenever
+    //p^precision is small enough.
+    private static final int SMALL_BITS = 61;
+    private final long[] smallPowers; //< smallPowers[k] = p^k for all p^k < 2^61
+    private final long[] barrett; //< barrett[k] = floor(2^(2b) / p^k) where b is bit length of p^k
+    private final int[] bits; //< bits[k] = bit length of p^k
+
+    private PAdicField(int p){
+        this.p = p;
+        this.bigP = BigInteger.valueOf(p);
+        BigInteger[] powers = new BigInteger[16];
+        powers[0] = BigInteger.ONE;
+        powers[1] = bigP;
+        this.powers = powers;
+        this.squarePowers = new BigInteger[]{bigP};
+        int k = 0;
+        for (long power = 1; power < (1L << SMALL_BITS) / p; power *= p) k++;
+        smallPowers = new long[k + 1];
+        barrett = new long[k + 1];
+        bits = new int[k + 1];
+        long power = 1;
+        for (int i = 0; i <= k; i++){
+            smallPowers[i] = power;
+            bits[i] = 64 - Long.numberOfLeadingZeros(power);
+            barrett[i] = BigInteger.ONE.shiftLeft(2 * bits[i]).divide(BigInteger.valueOf(power)).longValue();
+            power *= p;
+        }
+    }
+
+    /**
+     * Returns context of Q_p
+     * @param p prime
+     * @return context shared by all numbers of Q_p
+     */
+    public static PAdicField of(int p){
+        if (p <= 1) throw new RuntimeException("Invalid prime: " + p);
+        if (p < SMALL_PRIMES){
+            PAdicField field = smallFields[p];
+            if (field == null) {
+                field = fields.computeIfAbsent(p, PAdicField::new);
+                smallFields[p] = field;
+            }
+            return field;
+        }
+        return fields.computeIfAbsent(p, PAdicField::new);
+    }
+
+    public int getP(){
+        return p;
+    }
+
+    public BigInteger getBigP(){
+        return bigP;
+    }
+
+    /**
+     * Returns p^k. Computed powers are cached, so repeated calls
+     * with the same exponent don't allocate.
+     * @param k non-negative exponent
+     * @return p^k
+     */
+    public BigInteger pow(int k){
+        if (k < 0) throw new RuntimeException("Negative exponent");
+        BigInteger[] table = powers;
+        if (k < table.length && table[k] != null) return table[k];
+        PAdicMetrics.powerCacheMiss();
+        BigInteger power;
+        if (k < table.length && table[k - 1] != null) power = table[k - 1].multiply(bigP);
+        else power = bigP.pow(k);
+        store(k, power);
+        return power;
+    }
+
+    private synchronized void store(int k, BigInteger power){
+        BigInteger[] table = powers;
+        if (k >= table.length) {
+            PAdicMetrics.powerCacheGrowth();
+            BigInteger[] grown = new BigInteger[Math.max(k + 1, 2 * table.length)];
+            System.arraycopy(table, 0, grown, 0, table.length);
+            table = grown;
+        }
+        table[k] = power;
+        powers = table;
+    }
+
+    /**
+     * Returns p^(2^k), computed powers are cached
+     */
+    private BigInteger squarePow(int k){
+        BigInteger[] table = squarePowers;
+        if (k < table.length) return table[k];
+        return growSquarePowers(k);
+    }
+
+    private synchronized BigInteger growSquarePowers(int k){
+        BigInteger[] table = squarePowers;
+        if (k < table.length) return table[k];
+        BigInteger[] grown = Arrays.copyOf(table, k + 1);
+        for (int i = table.length; i <= k; i++) grown[i] = grown[i - 1].multiply(grown[i - 1]);
+        squarePowers = grown;
+        return grown[k];
+    }
+
+    /**
+     * Returns valuation of non-zero n.
+     * IMPLEMENTATION:
+     * n is divided by p, p^2, p^4, ... as long as the division is exact and
+     * then the remaining valuation (less than the last power tried) is found
+     * bit by bit with the same powers in reverse order, so only O(log v)
+     * divisions are needed instead of v.
+     * @param n non-zero BigInteger
+     * @return highest k such that p^k divides n
+     */
+    public int valuation(BigInteger n){
+        if (p == 2) return n.getLowestSetBit();
+        if (n.bitLength() < 64) {
+            long m = n.longValue();
+            int v = 0;
+            for (; m % p == 0; m /= p) v++;
+            return v;
+        }
+        if (n.mod(bigP).signum() != 0) return 0;
+        int v = 0, k = 0;
+        for (; ; k++){
+            BigInteger power = squarePow(k);
+            if (power.bitLength() > n.bitLength()) break;
+            BigInteger[] qr = n.divideAndRemainder(power);
+            if (qr[1].signum() != 0) break;
+            n = qr[0];
+            v += 1 << k;
+        }
+        for (k--; k >= 0; k--){
+            BigInteger power = squarePow(k);
+            if (power.bitLength() > n.bitLength()) continue;
+            BigInteger[] qr = n.divideAndRemainder(power);
+            if (qr[1].signum() != 0) continue;
+            n = qr[0];
+            v += 1 << k;
+        }
+        return v;
+    }
+
+    /**
+     * @param n BigInteger divisible by p^k
+     * @param k non-negative exponent
+     * @return n / p^k
+     */
+    public BigInteger removePower(BigInteger n, int k){
+        if (k == 0) return n;
+        if (p == 2) return n.shiftRight(k);
+        return n.divide(pow(k));
+    }
+
+    /**
+     * Returns n * p^k mod p^N where N is current computation precision,
+     * i.e. n * shift(k), without multiplication for p = 2
+     */
+    BigInteger mulShift(BigInteger n, int k){
+        if (k >= PAdic.getPrecision()) return BigInteger.ZERO;
+        if (p == 2) return n.shiftLeft(k);
+        return n.multiply(pow(k));
+    }
+
+    /**
+     * Returns p^k mod p^N where N is current computation precision,
+     * i.e. p^k for k < N and 0 otherwise.
+     * @param k non-negative exponent
+     * @return p^k mod p^N
+     */
+    public BigInteger shift(int k){
+        if (k >= PAdic.getPrecision()) return BigInteger.ZERO;
+        return pow(k);
+    }
+
+    /**
+     * @return p^N where N is current computation precision
+     */
+    public BigInteger modulus(){
+        return pow(PAdic.getPrecision());
+    }
+
+    /**
+     * Returns p^k if it fits in a machine word (p^k < 2^61)
+     * @param k non-negative exponent
+     * @return p^k or -1 if it is too large
+     */
+    public long smallPow(int k){
+        if (k < smallPowers.length) return smallPowers[k];
+        return -1;
+    }
+
+    /**
+     * Computes a * b mod p^k using Barrett reduction.
+     * Requires p^k to be small (see smallPow) and 0 <= a, b < p^k.
+     * @param a factor
+     * @param b factor
+     * @param k exponent of the modulus
+     * @return a * b mod p^k
+     */
+    long mulMod(long a, long b, int k){
+        if (p == 2) return TwoAdic.mulMod(a, b, k);
+        long m = smallPowers[k];
+        int n = bits[k];
+        if (n <= 31) return a * b % m;
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        long t = (hi << (65 - n)) | (lo >>> (n - 1));
+        long mu = barrett[k];
+        long q = (Math.multiplyHigh(t, mu) << (63 - n)) | ((t * mu) >>> (n + 1));
+        long rem = lo - q * m;
+        while (Long.compareUnsigned(rem, m) >= 0) rem -= m;
+        return rem;
+    }
+
+    /**
+     * Reduces given number modulo p^N where N is current computation precision
+     * @param n BigInteger
+     * @return n mod p^N (non-negative)
+     */
+    public BigInteger reduce(BigInteger n){
+        return reduce(n, PAdic.getPrecision());
+    }
+
+    /**
+     * Reduces given number modulo p^k
+     * @param n BigInteger
+     * @param k non-negative exponent
+     * @return n mod p^k (non-negative)
+     */
+    public BigInteger reduce(BigInteger n, int k){
+        if (p == 2) return TwoAdic.reduce(n, k);
+        BigInteger modulus = pow(k);
+        if (n.signum() >= 0 && n.compareTo(modulus) < 0) return n;
+        return n.mod(modulus);
+    }
+
+    /**
+     * Returns first count digits of p-adic expansion of n.
+     * IMPLEMENTATION:
+     * n mod p^count is split into high and low half by division by p^(2^k)
+     * and both halves are expanded recursively, so (with subquadratic
+     * BigInteger division) the whole expansion is subquadratic as well.
+     * Parts fitting in a long are expanded directly.
+     * @param n BigInteger (arbitrary sign)
+     * @param count number of digits
+     * @return digits, starting from the least significant one
+     */
+    public int[] digits(BigInteger n, int count){
+        PAdicMetrics.Probe probe = PAdicMetrics.probe(PAdicMetrics.Operation.DIGITS, p, count);
+        int[] out = new int[count];
+        if (count > 0) expand(reduce(n, count), out, 0, count);
+        probe.stop();
+        return out;
+    }
+
+    /**
+     * Writes count digits of 0 <= x < p^count to out starting at from
+     */
+    private void expand(BigInteger x, int[] out, int from, int count){
+        if (x.signum() == 0) return;
+        if (p == 2) {
+            TwoAdic.digits(x, out, from, count);
+            return;
+        }
+        if (x.bitLength() < 64) {
+            long v = x.longValue();
+            for (int i = from; v != 0; i++){
+                out[i] = (int) (v % p);
+                v /= p;
+            }
+            return;
+        }
+        int half = Integer.highestOneBit(count - 1);
+        BigInteger[] qr = x.divideAndRemainder(pow(half));
+        expand(qr[1], out, from, half);
+        expand(qr[0], out, from + half, count - half);
+    }
+
+    /**
+     * Returns number with given digits.
+     * IMPLEMENTATION:
+     * Inverse of digits: the lower part of length 2^k and the higher part
+     * are combined recursively as high * p^(2^k) + low, so that factors
+     * of multiplications have similar sizes. Parts fitting in a long are
+     * combined directly.
+     * @param digits digits, starting from the most significant one
+     * @param from index of the first digit
+     * @param to index after the last digit
+     * @return value of digits[from..to) in base p
+     */
+    public BigInteger fromDigits(byte[] digits, int from, int to){
+        if (p == 2) return TwoAdic.fromDigits(digits, from, to);
+        int count = to - from;
+        if (count < smallPowers.length) {
+            long v = 0;
+            for (int i = from; i < to; i++) v = v * p + digits[i];
+            return BigInteger.valueOf(v);
+        }
+        int low = Integer.highestOneBit(count - 1);
+        BigInteger high = fromDigits(digits, from, to - low);
+        return high.multiply(pow(low)).add(fromDigits(digits, to - low, to));
+    }
+
+    /**
+     * Returns first count digits of p-adic expansion of n lazily.
+     * Digits are expanded in chunks of growing size, so reading a few
+     * digits costs only a division by a small power of p.
+     * @param n BigInteger (arbitrary sign)
+     * @param count number of digits
+     * @return iterator over digits, starting from the least significant one
+     */
+    public PrimitiveIterator.OfInt digitIterator(BigInteger n, int count){
+        return new PrimitiveIterator.OfInt() {
+            private BigInteger rest = n;
+            private int index = 0;
+            private int[] chunk = new int[0];
+            private int pos = 0;
+            private int chunkSize = 16;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (pos == chunk.length) {
+                    int size = Math.min(chunkSize, count - index);
+                    BigInteger low = reduce(rest, size);
+                    rest = p == 2 ? rest.shiftRight(size) : rest.subtract(low).divide(pow(size));
+                    chunk = new int[size];
+                    expand(low, chunk, 0, size);
+                    pos = 0;
+                    chunkSize *= 2;
+                }
+                index++;
+                return chunk[pos++];
+            }
+        };
+    }
+
+    /**
+     * Returns limb arithmetic modulo p^n used by MutablePAdic
+     * @param n exponent of the modulus
+     */
+    LimbModulus limbModulus(int n){
+        return limbModuli.computeIfAbsent(n, k -> new LimbModulus(this, k));
+    }
+
+    @Override
+    public String toString() {
+        return "Q_" + p;
+    }
+}
@@ -0,0 +1,290 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+
+/**
+ * Elementary functions on Q_p: exp, log (Iwasawa branch, log p = 0) and sqrt.
+ * IMPLEMENTATION:
+ * Power series are truncated at the last term whose valuation can be
+ * below the target precision and summed by binary splitting: a range of terms
+ * is kept as one fraction T / (Q * p^e) with Q coprime to p, so the whole sum
+ * costs a single inversion at the end instead of one division per term.
+ * T, Q and the power of the argument are reduced modulo p^M (M is target
+ * precision plus e of the whole sum) only once they outgrow it, so for
+ * small arguments (like exp(p)) the lower levels work with small numbers.
+ * Square roots are lifted with Newton iteration for the inverse square root.
+ */
+final class PAdicFunctions {
+    private PAdicFunctions(){}
+
+    /**
+     * Partial sum over a range of terms, equal to t / (q * p^e)
+     */
+    private static final class Split {
+        BigInteger t; //< numerator
+        BigInteger q; //< denominator part coprime to p
+        int e; //< valuation of denominator
+        BigInteger pow; //< power of the argument over the range
+    }
+
+    /**
+     * exp(x) = sum x^k / k!, converges for v(x) > 1 / (p - 1)
+     * @param x p-adic number
+     * @return exp(x) with PAdic.getPrecision() digits
+     */
+    static PAdic exp(PAdic x){
+        int p = x.getP();
+        PAdicField field = x.getField();
+        int n = PAdic.getPrecision();
+        if (!x.isExact()) n = Math.min(n, x.getAbsPrecision());
+        PAdic one = new PAdic(1, p);
+        if (x.getVal() == Integer.MAX_VALUE) return x.isExact() ? one : one.withPrecision(n);
+        int v = x.getVal();
+        if ((long) v * (p - 1) <= 1) throw new RuntimeException("exp doesn't converge for valuation " + v + " in Q_" + p);
+        if (v >= n) return x.isExact() ? one : one.withPrecision(n);
+        //v(x^k / k!) >= kv - (k - 1) / (p - 1), so all the terms after the K-th are 0 mod p^n
+        int terms = (int) (((long) n * (p - 1) - 1) / ((long) v * (p - 1) - 1) + 1);
+        int m = n + factorialValuation(terms, p);
+        BigInteger arg = field.reduce(x.num(), m - v).multiply(field.pow(v));
+        Split s = expSplit(arg, 0, terms, field, field.pow(m));
+        BigInteger sum = fraction(s, n, field);
+        PAdic out = new PAdic(sum.add(BigInteger.ONE).mod(field.pow(n)), p);
+        return x.isExact() ? out : out.withPrecision(n);
+    }
+
+    /**
+     * Sum of x^(k - a) / ((a + 1)...k) for k in (a, b]
+     */
+    private static Split expSplit(BigInteger x, int a, int b, PAdicField field, BigInteger mod){
+        Split s = new Split();
+        if (b - a == 1) {
+            s.e = valuation(b, field.getP());
+            s.q = BigInteger.valueOf(b).divide(field.pow(s.e));
+            s.t = x;
+            s.pow = x;
+            return s;
+        }
+        int mid = (a + b) >>> 1;
+        Split l = expSplit(x, a, mid, field, mod), r = expSplit(x, mid, b, field, mod);
+        s.t = reduce(l.t.multiply(r.q).multiply(field.pow(r.e)).add(l.pow.multiply(r.t)), mod);
+        s.q = reduce(l.q.multiply(r.q), mod);
+        s.e = l.e + r.e;
+        s.pow = reduce(l.pow.multiply(r.pow), mod);
+        return s;
+    }
+
+    /**
+     * Iwasawa logarithm: log(p^v * u) = log(u) for unit u. Since u^(p - 1) = 1 mod p
+     * (u^2 = 1 mod 8 for p = 2), log(u) = log(u^(p - 1)) / (p - 1) is computed from
+     * the series log(1 + z) = sum (-1)^(k + 1) z^k / k.
+     * @param x non-zero p-adic number
+     * @return log(x) with PAdic.getPrecision() relevant digits
+     */
+    static PAdic log(PAdic x){
+        int p = x.getP();
+        PAdicField field = x.getField();
+        if (x.getVal() == Integer.MAX_VALUE) throw new RuntimeException("Logarithm of zero");
+        int n = PAdic.getPrecision();
+        int c = p == 2 ? 1 : 0;
+        int exponent = p == 2 ? 2 : p - 1;
+        BigInteger u = x.num();
+        //valuation of z = u^(p - 1) - 1 decides how many digits are needed
+        BigInteger z = u.modPow(BigInteger.valueOf(exponent), field.pow(2 * n)).subtract(BigInteger.ONE);
+        int w = valuation(z, field, 2 * n);
+        int target = n + w - c;
+        if (!x.isExact()) target = (int) Math.min(target, (long) x.getAbsPrecision() - x.getVal());
+        if (w >= 2 * n || w >= target + c) {
+            PAdic zero = new PAdic(0, p);
+            return x.isExact() ? zero : zero.withPrecision(target);
+        }
+        //v(z^k / k) >= kw - log_p(k), so all the terms after the K-th are 0 mod p^(target + c)
+        int terms = (target + c + w - 1) / w;
+        while ((long) (terms + 1) * w - floorLog(terms + 1, p) < target + c) terms++;
+        int m = target + c + floorLog(terms, p);
+        BigInteger mod = field.pow(m);
+        if (m > 2 * n) z = u.modPow(BigInteger.valueOf(exponent), mod).subtract(BigInteger.ONE);
+        z = z.mod(mod);
+        Split s = logSplit(z, 0, terms, field, mod);
+        BigInteger sum = fraction(s, target + c, field);
+        BigInteger targetMod = field.pow(target);
+        if (p == 2) sum = sum.shiftRight(1);
+        else sum = sum.multiply(BigInteger.valueOf(p - 1).modInverse(targetMod));
+        PAdic out = new PAdic(sum.mod(targetMod), p);
+        return x.isExact() ? out : out.withPrecision(target);
+    }
+
+    /**
+     * Sum of (-1)^(k + 1) z^(k - a) / k for k in (a, b]
+     */
+    private static Split logSplit(BigInteger z, int a, int b, PAdicField field, BigInteger mod){
+        Split s = new Split();
+        if (b - a == 1) {
+            s.e = valuation(b, field.getP());
+            s.q = BigInteger.valueOf(b).divide(field.pow(s.e));
+            s.t = b % 2 == 1 ? z : mod.subtract(z);
+            s.pow = z;
+            return s;
+        }
+        int mid = (a + b) >>> 1;
+        Split l = logSplit(z, a, mid, field, mod), r = logSplit(z, mid, b, field, mod);
+        //denominators are combined by lcm, so e grows only logarithmically
+        s.e = Math.max(l.e, r.e);
+        BigInteger left = l.t.multiply(r.q).multiply(field.pow(s.e - l.e));
+        BigInteger right = l.pow.multiply(r.t).multiply(l.q).multiply(field.pow(s.e - r.e));
+        s.t = reduce(left.add(right), mod);
+        s.q = reduce(l.q.multiply(r.q), mod);
+        s.pow = reduce(l.pow.multiply(r.pow), mod);
+        return s;
+    }
+
+    /**
+     * Square root of x = p^(2k) * u, u has to be a square modulo p (1 modulo 8 for p = 2).
+     * Root congruent to a residue in [1, (p - 1) / 2] modulo p (to 1 modulo 4 for p = 2)
+     * is chosen. Newton iteration y' = y(3 - uy^2) / 2 converges to u^(-1/2) doubling
+     * the number of digits (for p = 2 precision t grows to 2t - 2) and the root is u * y.
+     * @param x p-adic number
+     * @return square root
+     */
+    static PAdic sqrt(PAdic x){
+        int p = x.getP();
+        PAdicField field = x.getField();
+        if (x.getVal() == Integer.MAX_VALUE) return x;
+        int v = x.getVal();
+        if (v % 2 != 0) throw new RuntimeException(x + " is not a square in Q_" + p);
+        int c = p == 2 ? 1 : 0;
+        int n = PAdic.getPrecision() + c;
+        if (!x.isExact()) n = (int) Math.min(n, (long) x.getAbsPrecision() - v);
+        BigInteger u = field.reduce(x.num(), n);
+        BigInteger root;
+        if (p == 2) {
+            int mask = (1 << Math.min(3, n)) - 1;
+            if ((u.intValue() & mask) != (1 & mask))
+                throw new RuntimeException(x + " is not a square in Q_2");
+            if (n <= 3) root = BigInteger.ONE;
+            else {
+                BigInteger mod = field.pow(n), yMod = field.pow(n - 1);
+                BigInteger y = BigInteger.ONE;
+                for (int t = 3; t < n; t = 2 * t - 2){
+                    BigInteger e = u.multiply(y).multiply(y).subtract(BigInteger.ONE).mod(mod);
+                    y = y.subtract(y.multiply(e.shiftRight(1))).mod(yMod);
+                }
+                root = u.multiply(y).mod(yMod);
+                if (root.testBit(1)) root = yMod.subtract(root);
+            }
+        }
+        else {
+            long r = sqrtModP(u.mod(field.getBigP()).longValue(), p);
+            if (r < 0) throw new RuntimeException(x + " is not a square in Q_" + p);
+            BigInteger y = BigInteger.valueOf(Math.min(r, p - r)).modInverse(field.getBigP());
+            int[] steps = PAdic.newtonSteps(n);
+            for (int i = 1; i < steps.length; i++){
+                BigInteger mod = field.pow(steps[i]);
+                BigInteger half = mod.add(BigInteger.ONE).shiftRight(1);
+                BigInteger t = BigInteger.valueOf(3).subtract(u.multiply(y).multiply(y));
+                y = y.multiply(t).mod(mod).multiply(half).mod(mod);
+            }
+            root = u.multiply(y).mod(field.pow(n));
+        }
+        PAdic out = new PAdic(root, v / 2, p);
+        return x.isExact() ? out : out.withPrecision(v / 2 + n - c);
+    }
+
+    /**
+     * Tonelli-Shanks algorithm
+     * @return square root of a modulo p or -1 if a is not a square
+     */
+    private static long sqrtModP(long a, int p){
+        if (a == 0 || p == 2) return a;
+        if (powMod(a, (p - 1) / 2, p) != 1) return -1;
+        long q = p - 1;
+        int s = 0;
+        while (q % 2 == 0){ q /= 2; s++; }
+        long z = 2;
+        while (powMod(z, (p - 1) / 2, p) == 1) z++;
+        long m = s, c = powMod(z, q, p), t = powMod(a, q, p), r = powMod(a, (q + 1) / 2, p);
+        while (t != 1){
+            int i = 0;
+            for (long t2 = t; t2 != 1; t2 = t2 * t2 % p) i++;
+            long b = c;
+            for (long j = 0; j < m - i - 1; j++) b = b * b % p;
+            m = i;
+            c = b * b % p;
+            t = t * c % p;
+            r = r * b % p;
+        }
+        return r;
+    }
+
+    private static long powMod(long base, long exp, int p){
+        long out = 1;
+        base %= p;
+        for (; exp > 0; exp >>= 1){
+            if ((exp & 1) == 1) out = out * base % p;
+            base = base * base % p;
+        }
+        return out;
+    }
+
+    /**
+     * @return t / (q * p^e) modulo p^k, assuming it is in Z_p
+     */
+    private static BigInteger fraction(Split s, int k, PAdicField field){
+        BigInteger mod = field.pow(k);
+        BigInteger t = s.t.divide(field.pow(s.e)).mod(mod);
+        return t.multiply(s.q.modInverse(mod)).mod(mod);
+    }
+
+    private static BigInteger reduce(BigInteger n, BigInteger mod){
+        return n.bitLength() > mod.bitLength() ? n.mod(mod) : n;
+    }
+
+    private static int valuation(int k, int p){
+        int v = 0;
+        for (; k % p == 0; k /= p) v++;
+        return v;
+    }
+
+    /**
+     * @return valuation of n, at most bound
+     */
+    private static int valuation(BigInteger n, PAdicField field, int bound){
+        n = n.mod(field.pow(bound));
+        if (n.signum() == 0) return bound;
+        return field.valuation(n);
+    }
+
+    /**
+     * Legendre's formula: v(k!) = sum floor(k / p^i)
+     */
+    private static int factorialValuation(int k, int p){
+        int v = 0;
+        for (long q = p; q <= k; q *= p) v += k / q;
+        return v;
+    }
+
+    private static int floorLog(int k, int p){
+        int l = 0;
+        for (long q = p; q <= k; q *= p) l++;
+        return l;
+    }
+}
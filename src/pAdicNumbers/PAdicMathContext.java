@@ -0,0 +1,120 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.util.function.Supplier;
+
+/**
+ * Immutable computation settings of p-adic arithmetic (so far precision only -
+ * number of relevant digits in Q_p).
+ * Context is bound to a thread for the duration of call / run, threads without
+ * bound context use the default one (see PAdic.setPrecision), so computations
+ * with different precisions can run concurrently without any locking.
+ * IMPLEMENTATION:
+ * Binding is kept in a ThreadLocal. Tasks forked to other threads (e.g. fork-join)
+ * don't inherit it, so code spawning them captures current() and binds it in the task.
+ */
+public final class PAdicMathContext {
+    private static final ThreadLocal<PAdicMathContext> bound = new ThreadLocal<PAdicMathContext>();
+    private static volatile PAdicMathContext defaultContext = new PAdicMathContext(1000);
+
+    private final int precision;
+
+    /**
+     * @param precision number of relevant digits (in Q_p)
+     */
+    public PAdicMathContext(int precision){
+        if (precision <= 0) throw new RuntimeException("Non-positive precision");
+        this.precision = precision;
+    }
+
+    public int getPrecision(){
+        return precision;
+    }
+
+    /**
+     * @return context bound to the current thread or the default one
+     */
+    public static PAdicMathContext current(){
+        PAdicMathContext context = bound.get();
+        return context != null ? context : defaultContext;
+    }
+
+    public static PAdicMathContext getDefault(){
+        return defaultContext;
+    }
+
+    static void setDefault(PAdicMathContext context){
+        defaultContext = context;
+    }
+
+    /**
+     * Computes action with this context bound to the current thread
+     * @param action computation
+     * @return result of the action
+     */
+    public <T> T call(Supplier<T> action){
+        PAdicMathContext previous = bound.get();
+        bound.set(this);
+        try {
+            return action.get();
+        }
+        finally {
+            if (previous == null) bound.remove();
+            else bound.set(previous);
+        }
+    }
+
+    /**
+     * Runs action with this context bound to the current thread
+     * @param action computation
+     */
+    public void run(Runnable action){
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns action running in this context on whatever thread executes it
+     * @param action computation
+     * @return wrapped action
+     */
+    public Runnable wrap(Runnable action){
+        return () -> run(action);
+    }
+
+    @Override
+    public boolean equals(Object o){
+        return o instanceof PAdicMathContext && ((PAdicMathContext) o).precision == precision;
+    }
+
+    @Override
+    public int hashCode(){
+        return precision;
+    }
+
+    @Override
+    public String toString(){
+        return "PAdicMathContext[precision=" + precision + "]";
+    }
+}
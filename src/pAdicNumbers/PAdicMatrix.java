@@ -0,0 +1,597 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Matrix over Q_p stored in packed form like PAdicVector: valuations in an int array
+ * and unit parts modulo p^N in one flat array of limbs (row-major), where N is
+ * the precision at the time of creation. Every entry carries its absolute precision
+ * (see PAdic.getAbsPrecision), which is propagated through all the operations, so entries
+ * which are zero up to their precision are recognized as zeros (e.g. by rank).
+ * Matrices are immutable.
+ * IMPLEMENTATION:
+ * Elimination based operations (det, rank, inv, solve, Smith and Hermite forms)
+ * pivot on the entry of minimal valuation, so all the multipliers are in Z_p
+ * and no precision is lost by division. Every elimination step updates the
+ * remaining rows in row blocks processed in parallel on the common fork-join
+ * pool, every block has its own scratch buffers which are reused in all steps.
+ * Multiplication is done in row blocks as well, every entry of the product is
+ * accumulated in fixed point relative to the lowest possible valuation, so only
+ * one normalization per entry is needed.
+ */
+public final class PAdicMatrix {
+    private static final int PARALLEL_THRESHOLD = 1 << 14; //< lowest rows * columns * limbs of a step done in parallel
+    private static final int BLOCKS = 4 * Math.max(1, ForkJoinPool.getCommonPoolParallelism()); //< row blocks of a parallel step
+
+    private final int p;
+    private final LimbModulus mod;
+    private final int limbs;
+    private final int rows, cols;
+    private final int[] val; //< valuation of entry (i, j) at i * cols + j, Integer.MAX_VALUE for zeros
+    private final int[] prec; //< absolute precision of entry (i, j) at i * cols + j, Integer.MAX_VALUE for exact zeros
+    private final long[] units; //< unit part of entry (i, j) at (i * cols + j) * limbs
+
+    private PAdicMatrix(int p, LimbModulus mod, int rows, int cols){
+        this.p = p;
+        this.mod = mod;
+        this.limbs = mod.limbs();
+        this.rows = rows;
+        this.cols = cols;
+        this.val = new int[rows * cols];
+        this.prec = new int[rows * cols];
+        this.units = new long[rows * cols * limbs];
+        Arrays.fill(val, Integer.MAX_VALUE);
+        Arrays.fill(prec, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs zero matrix
+     * @param p prime
+     */
+    public PAdicMatrix(int p, int rows, int cols){
+        this(p, PAdicField.of(p).limbModulus(PAdic.getPrecision()), rows, cols);
+    }
+
+    /**
+     * Constructs matrix with given entries
+     * @param a rectangular array of p-adic numbers, a[i][j] is the entry in row i and column j
+     * @param p prime
+     */
+    public PAdicMatrix(PAdic[][] a, int p){
+        this(p, a.length, a.length == 0 ? 0 : a[0].length);
+        Kernel k = new Kernel();
+        for (int i = 0; i < rows; i++){
+            if (a[i].length != cols) throw new RuntimeException("Rows of different lengths");
+            for (int j = 0; j < cols; j++) k.set(i, j, a[i][j]);
+        }
+    }
+
+    public static PAdicMatrix identity(int p, int n){
+        return identity(p, PAdicField.of(p).limbModulus(PAdic.getPrecision()), n);
+    }
+
+    private static PAdicMatrix identity(int p, LimbModulus mod, int n){
+        PAdicMatrix out = new PAdicMatrix(p, mod, n, n);
+        for (int i = 0; i < n; i++) out.setPower(i, i, 0);
+        return out;
+    }
+
+    /**
+     * Sets entry (i, j) to p^v
+     */
+    private void setPower(int i, int j, int v){
+        int index = i * cols + j;
+        val[index] = v;
+        prec[index] = PAdic.clamp((long) v + mod.getN());
+        System.arraycopy(mod.one(), 0, units, index * limbs, limbs);
+    }
+
+    public int getP(){
+        return p;
+    }
+
+    public int getRows(){
+        return rows;
+    }
+
+    public int getCols(){
+        return cols;
+    }
+
+    public int getPrecision(){
+        return mod.getN();
+    }
+
+    public PAdic get(int i, int j){
+        return new Kernel().get(i, j);
+    }
+
+    public PAdic[][] toArray(){
+        PAdic[][] out = new PAdic[rows][cols];
+        Kernel k = new Kernel();
+        for (int i = 0; i < rows; i++){
+            for (int j = 0; j < cols; j++) out[i][j] = k.get(i, j);
+        }
+        return out;
+    }
+
+    private void check(PAdicMatrix a){
+        if (p != a.p) throw new FieldError(p, a.p);
+        if (mod != a.mod) throw new RuntimeException("Precision mismatch: " + mod.getN() + " and " + a.mod.getN());
+    }
+
+    private void checkSquare(){
+        if (rows != cols) throw new RuntimeException("Matrix is not square: " + rows + "x" + cols);
+    }
+
+    private PAdicMatrix copy(){
+        PAdicMatrix out = new PAdicMatrix(p, mod, rows, cols);
+        System.arraycopy(val, 0, out.val, 0, val.length);
+        System.arraycopy(prec, 0, out.prec, 0, prec.length);
+        System.arraycopy(units, 0, out.units, 0, units.length);
+        return out;
+    }
+
+    /**
+     * @return [this | a]
+     */
+    private PAdicMatrix augment(PAdicMatrix a){
+        PAdicMatrix out = new PAdicMatrix(p, mod, rows, cols + a.cols);
+        for (int i = 0; i < rows; i++){
+            System.arraycopy(val, i * cols, out.val, i * out.cols, cols);
+            System.arraycopy(a.val, i * a.cols, out.val, i * out.cols + cols, a.cols);
+            System.arraycopy(prec, i * cols, out.prec, i * out.cols, cols);
+            System.arraycopy(a.prec, i * a.cols, out.prec, i * out.cols + cols, a.cols);
+            System.arraycopy(units, i * cols * limbs, out.units, i * out.cols * limbs, cols * limbs);
+            System.arraycopy(a.units, i * a.cols * limbs, out.units, (i * out.cols + cols) * limbs, a.cols * limbs);
+        }
+        return out;
+    }
+
+    /**
+     * Returns product of this and a.
+     * IMPLEMENTATION:
+     * Entry (i, j) is accumulated modulo p^N relative to r_i + c_j, where r_i is the lowest
+     * valuation in row i of this and c_j in column j of a, so the terms are just multiplied
+     * (and shifted if needed) and added without normalization.
+     * @param a matrix with as many rows as this has columns
+     * @return product
+     */
+    public PAdicMatrix mul(PAdicMatrix a){
+        check(a);
+        if (cols != a.rows) throw new RuntimeException("Dimension mismatch: " + rows + "x" + cols + " times " + a.rows + "x" + a.cols);
+        PAdicMatrix out = new PAdicMatrix(p, mod, rows, a.cols);
+        int[] rowMin = new int[rows];
+        int[] colMin = new int[a.cols];
+        Arrays.fill(rowMin, Integer.MAX_VALUE);
+        Arrays.fill(colMin, Integer.MAX_VALUE);
+        for (int i = 0; i < rows; i++){
+            for (int j = 0; j < cols; j++) rowMin[i] = Math.min(rowMin[i], val[i * cols + j]);
+        }
+        for (int i = 0; i < a.rows; i++){
+            for (int j = 0; j < a.cols; j++) colMin[j] = Math.min(colMin[j], a.val[i * a.cols + j]);
+        }
+        int n = mod.getN();
+        forEachBlock(rows, (long) rows * cols * a.cols * limbs, null, (k, from, to) -> {
+            long[] acc = new long[limbs];
+            for (int i = from; i < to; i++){
+                if (rowMin[i] == Integer.MAX_VALUE) continue;
+                for (int j = 0; j < a.cols; j++){
+                    int sumPrec = Integer.MAX_VALUE;
+                    for (int t = 0; t < cols; t++){
+                        sumPrec = Math.min(sumPrec, PAdic.productPrecision(val[i * cols + t], prec[i * cols + t], a.val[t * a.cols + j], a.prec[t * a.cols + j], n));
+                    }
+                    out.prec[i * a.cols + j] = sumPrec;
+                    if (colMin[j] == Integer.MAX_VALUE) continue;
+                    long base = (long) rowMin[i] + colMin[j];
+                    Arrays.fill(acc, 0);
+                    for (int t = 0; t < cols; t++){
+                        int v1 = val[i * cols + t], v2 = a.val[t * a.cols + j];
+                        if (v1 == Integer.MAX_VALUE || v2 == Integer.MAX_VALUE) continue;
+                        long d = (long) v1 + v2 - base;
+                        if (d >= n) continue;
+                        k.load(this, i * cols + t, k.x);
+                        k.load(a, t * a.cols + j, k.y);
+                        mod.mul(k.x, k.y, k.x, k.scratch);
+                        if (d > 0) mod.mul(k.x, mod.powerOfP((int) d), k.x, k.scratch);
+                        mod.add(acc, k.x, acc);
+                    }
+                    int v = mod.normalize(acc, (int) base);
+                    sumPrec = PAdic.clamp(Math.min(sumPrec, base + n));
+                    out.prec[i * a.cols + j] = sumPrec;
+                    if (v >= sumPrec) continue;
+                    out.val[i * a.cols + j] = v;
+                    k.store(out, i * a.cols + j, acc);
+                }
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Pivots found by elimination
+     */
+    private static final class Elimination {
+        int rank = 0;
+        int sign = 1; //< sign of row and column permutations
+        int[] colPerm; //< column k of the eliminated matrix is column colPerm[k] of the original one
+        int[] pivotVal;
+        PAdic[] pivots; //< pivots before normalization
+    }
+
+    /**
+     * Gaussian elimination with full pivoting on the entry of minimal valuation
+     * among the first pivotCols columns (only these columns are permuted),
+     * modifies this.
+     * @param jordan whether pivot rows are normalized to 1 on the diagonal and entries above pivots are eliminated as well
+     * @return pivots
+     */
+    private Elimination eliminate(int pivotCols, boolean jordan){
+        Elimination e = new Elimination();
+        int steps = Math.min(rows, pivotCols);
+        e.colPerm = new int[pivotCols];
+        for (int j = 0; j < pivotCols; j++) e.colPerm[j] = j;
+        e.pivots = new PAdic[steps];
+        e.pivotVal = new int[steps];
+        Kernel[] kernels = new Kernel[BLOCKS];
+        Kernel main = new Kernel();
+        for (int s = 0; s < steps; s++){
+            int pi = -1, pj = -1, min = Integer.MAX_VALUE;
+            for (int i = s; i < rows; i++){
+                for (int j = s; j < pivotCols; j++){
+                    if (val[i * cols + j] < min) {
+                        min = val[i * cols + j];
+                        pi = i;
+                        pj = j;
+                    }
+                }
+            }
+            if (min == Integer.MAX_VALUE) break;
+            if (pi != s) {
+                swapRows(s, pi);
+                e.sign = -e.sign;
+            }
+            if (pj != s) {
+                swapCols(s, pj);
+                int t = e.colPerm[s];
+                e.colPerm[s] = e.colPerm[pj];
+                e.colPerm[pj] = t;
+                e.sign = -e.sign;
+            }
+            e.pivots[s] = main.get(s, s);
+            e.pivotVal[s] = min;
+            e.rank++;
+            long[] pivotInv = new long[limbs];
+            main.load(this, s * cols + s, main.x);
+            mod.inverse(main.x, pivotInv, main.tmp, main.scratch);
+            int pivotPrec = prec[s * cols + s];
+            if (jordan) {
+                scaleRow(main, s, s + 1, pivotInv, min, pivotPrec);
+                setPower(s, s, 0);
+                clearColumn(s, s, 0, rows, mod.one(), kernels);
+            }
+            else clearColumn(s, s, s + 1, rows, pivotInv, kernels);
+        }
+        return e;
+    }
+
+    /**
+     * Divides entries of row i from column from by d = u * p^dVal known modulo p^dPrec
+     * @param unitInv representation of inverse of u
+     */
+    private void scaleRow(Kernel k, int i, int from, long[] unitInv, int dVal, int dPrec){
+        for (int j = from; j < cols; j++){
+            int index = i * cols + j;
+            prec[index] = PAdic.quotientPrecision(val[index], prec[index], dVal, dPrec, mod.getN());
+            if (val[index] == Integer.MAX_VALUE) continue;
+            k.load(this, index, k.x);
+            mod.mul(k.x, unitInv, k.x, k.scratch);
+            k.store(this, index, k.x);
+            val[index] -= dVal;
+        }
+    }
+
+    /**
+     * For every row i in [from, to) other than r subtracts (a_ic / a_rc) * row r
+     * from row i, so that a_ic becomes zero
+     * @param pivotInv representation of inverse of the unit part of a_rc
+     */
+    private void clearColumn(int r, int c, int from, int to, long[] pivotInv, Kernel[] kernels){
+        int pivot = r * cols + c;
+        int pivotVal = val[pivot], pivotPrec = prec[pivot];
+        int n = mod.getN();
+        forEachBlock(to - from, (long) (to - from) * (cols - c) * limbs, kernels, (k, blockFrom, blockTo) -> {
+            long[] f = new long[limbs];
+            for (int i = from + blockFrom; i < from + blockTo; i++){
+                int index = i * cols + c;
+                int v = val[index];
+                if (i == r || (v == Integer.MAX_VALUE && prec[index] == Integer.MAX_VALUE)) continue;
+                int fPrec = PAdic.quotientPrecision(v, prec[index], pivotVal, pivotPrec, n);
+                if (v != Integer.MAX_VALUE) {
+                    k.load(this, index, f);
+                    mod.mul(f, pivotInv, f, k.scratch);
+                }
+                subtractRow(k, i, r, c + 1, v == Integer.MAX_VALUE ? null : f, v - pivotVal, fPrec);
+                prec[index] = Math.min(prec[index], PAdic.productPrecision(v == Integer.MAX_VALUE ? v : v - pivotVal, fPrec, pivotVal, pivotPrec, n));
+                val[index] = Integer.MAX_VALUE;
+            }
+        });
+    }
+
+    /**
+     * Subtracts f * p^fVal * row r from row i, starting from column from
+     * @param f representation of a unit, null if the factor is zero
+     * @param fPrec absolute precision of the factor
+     */
+    private void subtractRow(Kernel k, int i, int r, int from, long[] f, int fVal, int fPrec){
+        if (f == null) fVal = Integer.MAX_VALUE;
+        int n = mod.getN();
+        for (int j = from; j < cols; j++){
+            int vr = val[r * cols + j];
+            int index = i * cols + j;
+            int termPrec = PAdic.productPrecision(fVal, fPrec, vr, prec[r * cols + j], n);
+            if (f != null && vr != Integer.MAX_VALUE) {
+                int termVal = vr + fVal;
+                k.load(this, r * cols + j, k.y);
+                mod.mul(k.y, f, k.y, k.scratch);
+                mod.neg(k.y, k.y);
+                k.load(this, index, k.x);
+                //the sum is computed modulo p^N relative to the lower valuation
+                termPrec = PAdic.clamp(Math.min(termPrec, (long) Math.min(val[index], termVal) + n));
+                val[index] = mod.addShifted(k.x, val[index], k.y, termVal, k.tmp, k.scratch);
+                k.store(this, index, k.x);
+            }
+            prec[index] = Math.min(prec[index], termPrec);
+            if (val[index] >= prec[index]) val[index] = Integer.MAX_VALUE;
+        }
+    }
+
+    private void swapRows(int a, int b){
+        for (int j = 0; j < cols; j++) swap(a * cols + j, b * cols + j);
+    }
+
+    private void swapCols(int a, int b){
+        for (int i = 0; i < rows; i++) swap(i * cols + a, i * cols + b);
+    }
+
+    private void swap(int a, int b){
+        int v = val[a];
+        val[a] = val[b];
+        val[b] = v;
+        v = prec[a];
+        prec[a] = prec[b];
+        prec[b] = v;
+        for (int t = 0; t < limbs; t++){
+            long x = units[a * limbs + t];
+            units[a * limbs + t] = units[b * limbs + t];
+            units[b * limbs + t] = x;
+        }
+    }
+
+    /**
+     * @return determinant
+     */
+    public PAdic det(){
+        checkSquare();
+        if (rows == 0) return new PAdic(1, p);
+        Elimination e = copy().eliminate(cols, false);
+        if (e.rank < rows) return new PAdic(0, p);
+        PAdic det = e.pivots[0];
+        for (int i = 1; i < rows; i++) det = det.mul(e.pivots[i]);
+        return e.sign < 0 ? det.neg() : det;
+    }
+
+    /**
+     * @return rank (entries equal to 0 modulo p^N are zeros)
+     */
+    public int rank(){
+        return copy().eliminate(cols, false).rank;
+    }
+
+    /**
+     * @return inverse of square matrix
+     */
+    public PAdicMatrix inv(){
+        checkSquare();
+        return solve(identity(p, mod, rows));
+    }
+
+    /**
+     * Solves this * X = b
+     * @param b matrix with as many rows as this
+     * @return X
+     */
+    public PAdicMatrix solve(PAdicMatrix b){
+        checkSquare();
+        check(b);
+        if (b.rows != rows) throw new RuntimeException("Dimension mismatch: " + rows + "x" + cols + " and " + b.rows + "x" + b.cols);
+        PAdicMatrix aug = augment(b);
+        Elimination e = aug.eliminate(cols, true);
+        if (e.rank < rows) throw new RuntimeException("Singular matrix");
+        //row k of the solution of the column permuted system is row colPerm[k] of X
+        PAdicMatrix out = new PAdicMatrix(p, mod, rows, b.cols);
+        for (int k = 0; k < rows; k++){
+            int target = e.colPerm[k];
+            System.arraycopy(aug.val, k * aug.cols + cols, out.val, target * b.cols, b.cols);
+            System.arraycopy(aug.prec, k * aug.cols + cols, out.prec, target * b.cols, b.cols);
+            System.arraycopy(aug.units, (k * aug.cols + cols) * limbs, out.units, target * b.cols * limbs, b.cols * limbs);
+        }
+        return out;
+    }
+
+    /**
+     * Returns Smith normal form over Z_p: diagonal matrix D = UAV with U, V invertible over Z_p
+     * and D_ii = p^(v_i), v_1 <= v_2 <= ..., zeros after the rank.
+     * IMPLEMENTATION:
+     * After eliminating with pivot of minimal valuation v, all remaining entries
+     * have valuation at least v and the pivot row can be cleared by column operations
+     * without changing the rest, so valuations of the pivots are the exponents.
+     * @return Smith normal form
+     */
+    public PAdicMatrix smithForm(){
+        Elimination e = copy().eliminate(cols, false);
+        PAdicMatrix out = new PAdicMatrix(p, mod, rows, cols);
+        for (int i = 0; i < e.rank; i++) out.setPower(i, i, e.pivotVal[i]);
+        return out;
+    }
+
+    /**
+     * Returns (row) Hermite normal form over Z_p: H = UA with U invertible over Z_p,
+     * H in row echelon form, every pivot is a power p^v of p and the entries above
+     * it have no digits at p^v and higher.
+     * @return Hermite normal form
+     */
+    public PAdicMatrix hermiteForm(){
+        PAdicMatrix h = copy();
+        Kernel[] kernels = new Kernel[BLOCKS];
+        Kernel main = new Kernel();
+        int r = 0;
+        for (int c = 0; c < cols && r < rows; c++){
+            int pi = -1, min = Integer.MAX_VALUE;
+            for (int i = r; i < rows; i++){
+                if (h.val[i * cols + c] < min) {
+                    min = h.val[i * cols + c];
+                    pi = i;
+                }
+            }
+            if (min == Integer.MAX_VALUE) continue;
+            if (pi != r) h.swapRows(r, pi);
+            long[] pivotInv = new long[limbs];
+            main.load(h, r * cols + c, main.x);
+            mod.inverse(main.x, pivotInv, main.tmp, main.scratch);
+            //division by the unit part of the pivot, known modulo p^(prec - min)
+            h.scaleRow(main, r, c + 1, pivotInv, 0, h.prec[r * cols + c] - min);
+            h.setPower(r, c, min);
+            h.clearColumn(r, c, r + 1, rows, mod.one(), kernels);
+            for (int i = 0; i < r; i++) h.reduceAbove(main, i, r, c, min);
+            r++;
+        }
+        return h;
+    }
+
+    /**
+     * Subtracts q * row r from row i, where q in Z_p is chosen so that
+     * a_ic gets no digits at p^v and higher (a_rc = p^v)
+     */
+    private void reduceAbove(Kernel k, int i, int r, int c, int v){
+        int w = val[i * cols + c];
+        if (w == Integer.MAX_VALUE) return;
+        k.load(this, i * cols + c, k.x);
+        BigInteger u = mod.fromRep(k.x, k.scratch);
+        BigInteger q;
+        if (w >= v) q = u.multiply(PAdicField.of(p).pow(w - v));
+        else {
+            BigInteger power = PAdicField.of(p).pow(v - w);
+            q = u.subtract(u.mod(power)).divide(power);
+        }
+        if (q.signum() == 0) return;
+        PAdic factor = new PAdic(q, p);
+        long[] f = new long[limbs];
+        mod.toRep(factor.num(), f);
+        subtractRow(k, i, r, c, f, factor.getVal(), prec[i * cols + c] == Integer.MAX_VALUE ? Integer.MAX_VALUE : PAdic.clamp((long) prec[i * cols + c] - v));
+    }
+
+    private interface BlockTask {
+        void apply(Kernel k, int from, int to);
+    }
+
+    /**
+     * Runs task on row blocks of [0, count), in parallel if work is large enough
+     * @param kernels scratch buffers of the blocks reused between calls (may be null)
+     */
+    private void forEachBlock(int count, long work, Kernel[] kernels, BlockTask task){
+        if (count <= 0) return;
+        if (work < PARALLEL_THRESHOLD || count == 1) {
+            Kernel k = kernels == null ? new Kernel() : kernel(kernels, 0);
+            task.apply(k, 0, count);
+            return;
+        }
+        int blocks = Math.min(BLOCKS, count);
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            Kernel k = kernels == null ? new Kernel() : kernel(kernels, b);
+            task.apply(k, (int) ((long) count * b / blocks), (int) ((long) count * (b + 1) / blocks));
+        });
+    }
+
+    private Kernel kernel(Kernel[] kernels, int b){
+        if (kernels[b] == null) kernels[b] = new Kernel();
+        return kernels[b];
+    }
+
+    /**
+     * Scratch buffers of a single row block
+     */
+    private final class Kernel {
+        final long[] x = new long[limbs];
+        final long[] y = new long[limbs];
+        final long[] tmp = new long[limbs];
+        final long[] scratch = new long[limbs + 2];
+
+        void load(PAdicMatrix m, int index, long[] out){
+            System.arraycopy(m.units, index * limbs, out, 0, limbs);
+        }
+
+        void store(PAdicMatrix m, int index, long[] in){
+            System.arraycopy(in, 0, m.units, index * limbs, limbs);
+        }
+
+        void set(int i, int j, PAdic a){
+            if (p != a.getP()) throw new FieldError(p, a.getP());
+            int index = i * cols + j;
+            val[index] = Integer.MAX_VALUE;
+            prec[index] = a.getAbsPrecision();
+            if (a.getVal() == Integer.MAX_VALUE) return;
+            if (a.isSmall()) mod.toRep(a.smallNum(), x, scratch);
+            else mod.toRep(a.num(), x);
+            int v = mod.normalize(x, a.getVal());
+            prec[index] = PAdic.clamp(Math.min(prec[index], (long) v + mod.getN()));
+            if (v >= prec[index]) return;
+            val[index] = v;
+            store(PAdicMatrix.this, index, x);
+        }
+
+        PAdic get(int i, int j){
+            int index = i * cols + j;
+            if (val[index] == Integer.MAX_VALUE) return new PAdic(0, p).withPrecision(prec[index]);
+            load(PAdicMatrix.this, index, x);
+            return new PAdic(mod.fromRep(x, scratch), val[index], p).withPrecision(prec[index]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        Kernel k = new Kernel();
+        for (int i = 0; i < rows; i++){
+            for (int j = 0; j < cols; j++){
+                if (j > 0) s.append(' ');
+                s.append(k.get(i, j));
+            }
+            s.append('\n');
+        }
+        return s.toString();
+    }
+}
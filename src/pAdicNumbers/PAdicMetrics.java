@@ -0,0 +1,314 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in instrumentation of p-adic arithmetic: per operation counters and latency
+ * histograms, counters of misses and growths of the power cache (see PAdicField.pow)
+ * and JFR events (pAdicNumbers.Operation) for expensive operations tagged with
+ * prime and precision.
+ * Metrics are collected only when enabled (enable() or -DpAdicNumbers.metrics=true),
+ * JFR events only when a recording has them enabled. Otherwise a probe costs a read of
+ * a volatile field (and of the JFR enabled flag for expensive operations).
+ * Metrics can also be read through a platform MXBean, see registerMBean.
+ */
+public final class PAdicMetrics {
+    private PAdicMetrics(){}
+
+    public enum Operation {
+        ADD, MUL, NEG, INV, EXP, LOG, SQRT, NEWTON, GHL, ROOTS, DIGITS
+    }
+
+    /**
+     * Histograms have one bucket per power of two: bucket i counts latencies in [2^i, 2^(i + 1)) ns
+     */
+    public static final int BUCKETS = 64;
+    public static final String MBEAN_NAME = "pAdicNumbers:type=PAdicMetrics";
+    static final long DISABLED = Long.MIN_VALUE; //< start time returned when metrics are off
+
+    private static volatile boolean enabled = Boolean.getBoolean("pAdicNumbers.metrics");
+    private static final int OPERATIONS = Operation.values().length;
+    private static final LongAdder[] counts = adders(OPERATIONS);
+    private static final LongAdder[] nanos = adders(OPERATIONS);
+    private static final LongAdder[] histograms = adders(OPERATIONS * BUCKETS);
+    private static final LongAdder powerCacheMisses = new LongAdder();
+    private static final LongAdder powerCacheGrowths = new LongAdder();
+    private static final EventType EVENT_TYPE = EventType.getEventType(OperationEvent.class);
+
+    private static LongAdder[] adders(int n){
+        LongAdder[] out = new LongAdder[n];
+        for (int i = 0; i < n; i++) out[i] = new LongAdder();
+        return out;
+    }
+
+    @Name("pAdicNumbers.Operation")
+    @Label("p-adic Operation")
+    @Category("p-adic Numbers")
+    @Description("Expensive operation on p-adic numbers")
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Prime")
+        int prime;
+
+        @Label("Precision")
+        int precision;
+    }
+
+    /**
+     * Times one expensive operation, see probe
+     */
+    static final class Probe {
+        static final Probe NOOP = new Probe(null, 0, 0, false, false);
+
+        private final Operation operation;
+        private final int prime;
+        private final int precision;
+        private final long start;
+        private final OperationEvent event;
+
+        private Probe(Operation operation, int prime, int precision, boolean metrics, boolean event){
+            this.operation = operation;
+            this.prime = prime;
+            this.precision = precision;
+            this.start = metrics ? System.nanoTime() : DISABLED;
+            this.event = event ? new OperationEvent() : null;
+            if (event) this.event.begin();
+        }
+
+        void stop(){
+            if (start != DISABLED) record(operation, System.nanoTime() - start);
+            if (event == null) return;
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.prime = prime;
+                event.precision = precision;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return start time to be passed to stop
+     */
+    static long start(){
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    static void stop(Operation operation, long start){
+        if (start != DISABLED) record(operation, System.nanoTime() - start);
+    }
+
+    /**
+     * Starts timing of an expensive operation, which is also reported as JFR event
+     * @return probe to be stopped after the operation
+     */
+    static Probe probe(Operation operation, int prime, int precision){
+        boolean metrics = enabled, event = EVENT_TYPE.isEnabled();
+        if (!metrics && !event) return Probe.NOOP;
+        return new Probe(operation, prime, precision, metrics, event);
+    }
+
+    static void powerCacheMiss(){
+        if (enabled) powerCacheMisses.increment();
+    }
+
+    static void powerCacheGrowth(){
+        if (enabled) powerCacheGrowths.increment();
+    }
+
+    private static void record(Operation operation, long elapsed){
+        int i = operation.ordinal();
+        counts[i].increment();
+        nanos[i].add(elapsed);
+        int bucket = elapsed <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(elapsed);
+        histograms[i * BUCKETS + bucket].increment();
+    }
+
+    public static void enable(){
+        enabled = true;
+    }
+
+    public static void disable(){
+        enabled = false;
+    }
+
+    public static boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * Clears all the counters and histograms
+     */
+    public static void reset(){
+        for (LongAdder a : counts) a.reset();
+        for (LongAdder a : nanos) a.reset();
+        for (LongAdder a : histograms) a.reset();
+        powerCacheMisses.reset();
+        powerCacheGrowths.reset();
+    }
+
+    public static long getCount(Operation operation){
+        return counts[operation.ordinal()].sum();
+    }
+
+    public static long getTotalNanos(Operation operation){
+        return nanos[operation.ordinal()].sum();
+    }
+
+    /**
+     * @return latency histogram, see BUCKETS
+     */
+    public static long[] getHistogram(Operation operation){
+        long[] out = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) out[b] = histograms[operation.ordinal() * BUCKETS + b].sum();
+        return out;
+    }
+
+    /**
+     * @param q quantile in [0, 1]
+     * @return upper bound of the histogram bucket containing the q-quantile of latency in ns,
+     * 0 if nothing was recorded
+     */
+    public static long getQuantileNanos(Operation operation, double q){
+        long[] h = getHistogram(operation);
+        long total = 0;
+        for (long c : h) total += c;
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++){
+            seen += h[b];
+            if (seen >= rank && h[b] > 0) return b == 63 ? Long.MAX_VALUE : (1L << (b + 1)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return number of powers of p computed because they were missing in the cache
+     */
+    public static long getPowerCacheMisses(){
+        return powerCacheMisses.sum();
+    }
+
+    /**
+     * @return number of times the table of cached powers of p was reallocated
+     */
+    public static long getPowerCacheGrowths(){
+        return powerCacheGrowths.sum();
+    }
+
+    /**
+     * Management interface of the metrics, registered by registerMBean
+     */
+    public interface PAdicMetricsMXBean {
+        boolean isEnabled();
+        void setEnabled(boolean enabled);
+        Map<String, Long> getCounts();
+        Map<String, Long> getTotalNanos();
+        Map<String, Long> getMedianNanos();
+        Map<String, Long> getP99Nanos();
+        long getPowerCacheMisses();
+        long getPowerCacheGrowths();
+        void reset();
+    }
+
+    private static final class Bean implements PAdicMetricsMXBean {
+        public boolean isEnabled(){
+            return PAdicMetrics.isEnabled();
+        }
+
+        public void setEnabled(boolean enabled){
+            PAdicMetrics.enabled = enabled;
+        }
+
+        public Map<String, Long> getCounts(){
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (Operation o : Operation.values()) out.put(o.name(), getCount(o));
+            return out;
+        }
+
+        public Map<String, Long> getTotalNanos(){
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (Operation o : Operation.values()) out.put(o.name(), PAdicMetrics.getTotalNanos(o));
+            return out;
+        }
+
+        public Map<String, Long> getMedianNanos(){
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (Operation o : Operation.values()) out.put(o.name(), getQuantileNanos(o, 0.5));
+            return out;
+        }
+
+        public Map<String, Long> getP99Nanos(){
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (Operation o : Operation.values()) out.put(o.name(), getQuantileNanos(o, 0.99));
+            return out;
+        }
+
+        public long getPowerCacheMisses(){
+            return PAdicMetrics.getPowerCacheMisses();
+        }
+
+        public long getPowerCacheGrowths(){
+            return PAdicMetrics.getPowerCacheGrowths();
+        }
+
+        public void reset(){
+            PAdicMetrics.reset();
+        }
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server under MBEAN_NAME
+     * (does nothing if they are registered already)
+     */
+    public static void registerMBean(){
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new Bean(), new ObjectName(MBEAN_NAME));
+        }
+        catch (InstanceAlreadyExistsException e){
+            //registered by another call
+        }
+        catch (JMException e){
+            throw new RuntimeException("Couldn't register metrics MBean", e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Powers of a fixed p-adic number with precomputation, for bases raised to many
+ * different exponents. Also contains exponentiation modulo p^k used by PAdic.pow(BigInteger).
+ * IMPLEMENTATION:
+ * Moduli fitting in a long use sliding windows: odd powers b, b^3, ..., b^(2^w - 1)
+ * are precomputed, so that a run of w bits costs w squarings and one multiplication
+ * (larger moduli use BigInteger.modPow, which does the same in Montgomery form).
+ * A fixed base keeps table b^(2^(w * i)) (grown as larger exponents arrive) and
+ * evaluates b^e with Yao's method: table entries are multiplied into bucket d for every
+ * digit d of e in base 2^w and then b^e = prod bucket[d]^d is formed as a product of
+ * partial products of buckets, so there are no squarings at all and about
+ * bits / w + 2^(w + 1) multiplications. Tables modulo large p^n are kept in limb
+ * representation (see LimbModulus).
+ */
+public final class PAdicPower {
+    static final int FIXED_WINDOW = 4; //< width of digits of exponents for a fixed base
+
+    private final PAdic base;
+    private volatile Table table; //< powers of the unit part, rebuilt when precision grows
+
+    /**
+     * Table b^(2^(w * i)) modulo p^n, as longs if p^n is small and in
+     * limb representation of mod otherwise
+     */
+    private static final class Table {
+        final int n;
+        final long[] small;
+        final LimbModulus mod;
+        final long[][] big;
+
+        Table(int n, long[] small, LimbModulus mod, long[][] big){
+            this.n = n;
+            this.small = small;
+            this.mod = mod;
+            this.big = big;
+        }
+
+        int length(){
+            return small != null ? small.length : big.length;
+        }
+    }
+
+    /**
+     * @param base base of the powers
+     */
+    public PAdicPower(PAdic base){
+        this.base = base;
+    }
+
+    public PAdic getBase(){
+        return base;
+    }
+
+    /**
+     * Returns base^e, equal to base.pow(e)
+     * @param e exponent (negative exponents invert the base)
+     * @return power
+     */
+    public PAdic pow(BigInteger e){
+        return base.pow(e, this);
+    }
+
+    /**
+     * Returns base^e, equal to base.pow(e)
+     * @param e exponent
+     * @return power
+     */
+    public PAdic pow(long e){
+        return pow(BigInteger.valueOf(e));
+    }
+
+    /**
+     * Computes u^e mod p^n where u is unit part of the base
+     * @param e positive exponent
+     * @param n positive exponent of the modulus, at most relative precision of the base
+     * @return power modulo p^n
+     */
+    BigInteger unitPow(BigInteger e, int n){
+        PAdicField field = PAdicField.of(base.getP());
+        int digits = (e.bitLength() + FIXED_WINDOW - 1) / FIXED_WINDOW;
+        Table t = table(field, n, digits);
+        int buckets = 1 << FIXED_WINDOW;
+        //multiplications by 1 are skipped, which is correct even if 1 is a genuine value
+        if (t.small != null) {
+            long[] bucket = new long[buckets];
+            Arrays.fill(bucket, 1);
+            for (int i = 0; i < digits; i++){
+                int d = digit(e, i);
+                if (d != 0) bucket[d] = bucket[d] == 1 ? t.small[i] : field.mulMod(bucket[d], t.small[i], t.n);
+            }
+            long result = 1, acc = 1;
+            for (int d = buckets - 1; d > 0; d--){
+                if (bucket[d] != 1) acc = acc == 1 ? bucket[d] : field.mulMod(acc, bucket[d], t.n);
+                if (acc != 1) result = result == 1 ? acc : field.mulMod(result, acc, t.n);
+            }
+            return BigInteger.valueOf(result % field.smallPow(n));
+        }
+        LimbModulus mod = t.mod;
+        long[] scratch = new long[mod.limbs() + 2];
+        long[][] bucket = new long[buckets][];
+        for (int i = 0; i < digits; i++){
+            int d = digit(e, i);
+            if (d == 0) continue;
+            if (bucket[d] == null) bucket[d] = t.big[i].clone();
+            else mod.mul(bucket[d], t.big[i], bucket[d], scratch);
+        }
+        long[] result = null, acc = null;
+        for (int d = buckets - 1; d > 0; d--){
+            if (bucket[d] != null) {
+                if (acc == null) acc = bucket[d];
+                else mod.mul(acc, bucket[d], acc, scratch);
+            }
+            if (acc == null) continue;
+            if (result == null) result = acc.clone();
+            else mod.mul(result, acc, result, scratch);
+        }
+        return field.reduce(mod.fromRep(result == null ? mod.one() : result, scratch), n);
+    }
+
+    private static int digit(BigInteger e, int i){
+        int d = 0;
+        for (int j = FIXED_WINDOW - 1; j >= 0; j--) d = 2 * d + (e.testBit(i * FIXED_WINDOW + j) ? 1 : 0);
+        return d;
+    }
+
+    /**
+     * Returns table modulo at least p^n with at least given number of entries
+     */
+    private Table table(PAdicField field, int n, int length){
+        Table t = table;
+        if (t != null && t.n >= n && t.length() >= length) return t;
+        return grow(field, n, length);
+    }
+
+    private synchronized Table grow(PAdicField field, int n, int length){
+        Table t = table;
+        if (t != null && t.n >= n && t.length() >= length) return t;
+        if (t != null && t.n >= n) n = t.n;
+        if (t != null && t.n == n) length = Math.max(length, 2 * t.length());
+        int from = t != null && t.n == n ? t.length() : 0;
+        BigInteger unit = field.reduce(base.num(), n);
+        if (field.smallPow(n) > 0) {
+            long[] small = new long[length];
+            if (from > 0) System.arraycopy(t.small, 0, small, 0, from);
+            else small[0] = unit.longValue();
+            for (int i = Math.max(from, 1); i < length; i++){
+                long x = small[i - 1];
+                for (int j = 0; j < FIXED_WINDOW; j++) x = field.mulMod(x, x, n);
+                small[i] = x;
+            }
+            t = new Table(n, small, null, null);
+        }
+        else {
+            LimbModulus mod = field.limbModulus(n);
+            long[] scratch = new long[mod.limbs() + 2];
+            long[][] big = new long[length][];
+            if (from > 0) System.arraycopy(t.big, 0, big, 0, from);
+            else {
+                big[0] = new long[mod.limbs()];
+                mod.toRep(unit, big[0]);
+            }
+            for (int i = Math.max(from, 1); i < length; i++){
+                long[] x = big[i - 1].clone();
+                for (int j = 0; j < FIXED_WINDOW; j++) mod.mul(x, x, x, scratch);
+                big[i] = x;
+            }
+            t = new Table(n, null, mod, big);
+        }
+        table = t;
+        return t;
+    }
+
+    /**
+     * Returns width of sliding window for exponent of given length
+     */
+    static int window(int bits){
+        if (bits <= 8) return 1;
+        if (bits <= 24) return 2;
+        if (bits <= 80) return 3;
+        if (bits <= 240) return 4;
+        if (bits <= 672) return 5;
+        return 6;
+    }
+
+    /**
+     * Computes b^e mod p^k with sliding windows, requires p^k to be small (see PAdicField.smallPow)
+     * @param b base, 0 <= b < p^k
+     * @param e non-negative exponent
+     * @param k exponent of the modulus
+     * @param field Q_p
+     * @return b^e mod p^k
+     */
+    static long powMod(long b, BigInteger e, int k, PAdicField field){
+        long m = field.smallPow(k);
+        int w = window(e.bitLength());
+        long[] odd = new long[1 << (w - 1)];
+        odd[0] = b;
+        if (odd.length > 1) {
+            long b2 = field.mulMod(b, b, k);
+            for (int i = 1; i < odd.length; i++) odd[i] = field.mulMod(odd[i - 1], b2, k);
+        }
+        long result = 1 % m;
+        for (int i = e.bitLength() - 1; i >= 0; ){
+            if (!e.testBit(i)) {
+                result = field.mulMod(result, result, k);
+                i--;
+                continue;
+            }
+            int j = Math.max(i - w + 1, 0);
+            while (!e.testBit(j)) j++;
+            int value = 0;
+            for (int l = i; l >= j; l--){
+                value = 2 * value + (e.testBit(l) ? 1 : 0);
+                result = field.mulMod(result, result, k);
+            }
+            result = field.mulMod(result, odd[value >> 1], k);
+            i = j - 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,505 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Binary storage of p-adic numbers.
+ * Every number is encoded (little-endian) as a record of four ints: prime, valuation
+ * (Integer.MAX_VALUE for zero), absolute precision (Integer.MAX_VALUE for exact numbers)
+ * and signed number of limbs, followed by 64-bit limbs of the absolute value of the unit
+ * part, the least significant first. The sign of the number of limbs is the sign of the unit.
+ * A store file consists of a header (MAGIC and VERSION), the records, an end marker
+ * (record with prime 0), an index of record offsets and a trailer with the offset of the index
+ * and the number of records. Readers stream records up to the end marker, so they work on
+ * pipes as well, while views map the file and use the index for random access.
+ */
+public final class PAdicStore {
+    public static final int MAGIC = 0x43444150; //< "PADC" in little-endian
+    public static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int RECORD_HEADER = 16;
+    private static final int TRAILER = 16;
+    private static final int BUFFER = 1 << 16;
+    private static final int SEGMENT = 1 << 30;
+
+    private PAdicStore(){}
+
+    /**
+     * @return number of bytes of the record of a
+     */
+    public static int encodedSize(PAdic a){
+        return RECORD_HEADER + 8 * limbCount(a);
+    }
+
+    private static int limbCount(PAdic a){
+        if (a.getVal() == Integer.MAX_VALUE) return 0;
+        if (a.isSmall()) return a.smallNum() == 0 ? 0 : 1;
+        return (a.num().abs().bitLength() + 63) >>> 6;
+    }
+
+    /**
+     * Writes the record of a at the position of out (little-endian buffer)
+     */
+    static void encode(PAdic a, ByteBuffer out){
+        int limbs = limbCount(a);
+        boolean negative = a.isSmall() ? a.smallNum() < 0 : a.num().signum() < 0;
+        out.putInt(a.getP());
+        out.putInt(a.getVal());
+        out.putInt(a.getAbsPrecision());
+        out.putInt(negative ? -limbs : limbs);
+        if (limbs == 0) return;
+        if (a.isSmall()) {
+            //|Long.MIN_VALUE| is read back correctly as unsigned
+            out.putLong(Math.abs(a.smallNum()));
+            return;
+        }
+        byte[] b = a.num().abs().toByteArray();
+        for (int k = 0; k < limbs; k++){
+            long limb = 0;
+            for (int j = 7; j >= 0; j--){
+                int index = b.length - 1 - (8 * k + j);
+                limb = (limb << 8) | (index >= 0 ? b[index] & 0xFF : 0);
+            }
+            out.putLong(limb);
+        }
+    }
+
+    /**
+     * Decodes record at given offset of in (little-endian buffer), position of in is not changed
+     */
+    static PAdic decode(ByteBuffer in, int offset){
+        int p = in.getInt(offset);
+        int val = in.getInt(offset + 4);
+        int prec = in.getInt(offset + 8);
+        int limbs = in.getInt(offset + 12);
+        PAdicField field = PAdicField.of(p);
+        if (limbs == 0) return PAdic.fromParts(BigInteger.ZERO, 0, true, val, field, prec);
+        int count = Math.abs(limbs);
+        if (count == 1) {
+            long m = in.getLong(offset + RECORD_HEADER);
+            if (m >= 0) return PAdic.fromParts(null, limbs < 0 ? -m : m, true, val, field, prec);
+        }
+        byte[] b = new byte[8 * count];
+        for (int k = 0; k < count; k++){
+            long limb = in.getLong(offset + RECORD_HEADER + 8 * k);
+            for (int j = 0; j < 8; j++) b[b.length - 1 - 8 * k - j] = (byte) (limb >>> (8 * j));
+        }
+        BigInteger n = new BigInteger(limbs < 0 ? -1 : 1, b);
+        boolean small = n.bitLength() < 64;
+        return PAdic.fromParts(n, small ? n.longValue() : 0, small, val, field, prec);
+    }
+
+    /**
+     * Writes given numbers to a store file
+     * @param path file
+     * @param a p-adic numbers
+     * @throws IOException if writing fails
+     */
+    public static void write(Path path, PAdic[] a) throws IOException {
+        try (Writer w = new Writer(path)){
+            for (PAdic x : a) w.write(x);
+        }
+    }
+
+    /**
+     * Maps store file for random access
+     * @param path file
+     * @return view of the file
+     * @throws IOException if mapping fails
+     */
+    public static View map(Path path) throws IOException {
+        return new View(path);
+    }
+
+    /**
+     * Streams records of a store file (or a stream in the same format)
+     * @param path file
+     * @return reader
+     * @throws IOException if opening fails
+     */
+    public static Reader reader(Path path) throws IOException {
+        return new Reader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Writes records through a buffer, keeping offsets for the index.
+     * Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private long position; //< offset of the next record in the file
+        private long[] offsets = new long[1024];
+        private int count;
+        private boolean closed;
+
+        public Writer(Path path) throws IOException {
+            this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        }
+
+        /**
+         * @param channel channel, which is closed together with the writer
+         */
+        public Writer(WritableByteChannel channel){
+            this.channel = channel;
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            position = HEADER;
+        }
+
+        public void write(PAdic a) throws IOException {
+            int size = encodedSize(a);
+            ensure(size);
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, 2 * count);
+            offsets[count++] = position;
+            encode(a, buffer);
+            position += size;
+        }
+
+        /**
+         * @return number of records written so far
+         */
+        public int size(){
+            return count;
+        }
+
+        private void ensure(int size) throws IOException {
+            if (buffer.remaining() >= size) return;
+            flush();
+            if (buffer.capacity() < size) buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Writes the end marker, the index and the trailer and closes the channel
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                ensure(RECORD_HEADER);
+                buffer.putInt(0).putInt(0).putInt(0).putInt(0);
+                long indexOffset = position + RECORD_HEADER;
+                for (int i = 0; i < count; i++){
+                    ensure(8);
+                    buffer.putLong(offsets[i]);
+                }
+                ensure(TRAILER);
+                buffer.putLong(indexOffset);
+                buffer.putLong(count);
+                flush();
+            }
+            finally {
+                channel.close();
+            }
+        }
+
+        /**
+         * Closes the channel without the end marker, the index and the trailer, so the
+         * output is not a valid store and readers fail on it. Used when producing the
+         * records fails; does nothing if the writer is already closed.
+         */
+        public void abort() throws IOException {
+            if (closed) return;
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads records sequentially through a buffer up to the end marker. Not thread-safe.
+     */
+    public static final class Reader implements Iterator<PAdic>, Closeable {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private boolean end;
+
+        /**
+         * @param channel channel positioned at the header, it is closed together with the reader
+         * @throws IOException if reading fails or the header is wrong
+         */
+        public Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.flip();
+            if (!fill(HEADER) || buffer.getInt() != MAGIC) throw new IOException("Not a PAdic store");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported PAdic store version: " + version);
+        }
+
+        /**
+         * Makes at least k bytes available in the buffer
+         * @return false if the channel ended before
+         */
+        private boolean fill(int k) throws IOException {
+            if (buffer.remaining() >= k) return true;
+            if (buffer.capacity() < k) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(k).order(ByteOrder.LITTLE_ENDIAN);
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+            else buffer.compact();
+            while (buffer.position() < k){
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    return false;
+                }
+            }
+            buffer.flip();
+            return true;
+        }
+
+        @Override
+        public boolean hasNext(){
+            if (end) return false;
+            try {
+                if (!fill(RECORD_HEADER)) throw new EOFException("Truncated PAdic store");
+            }
+            catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            if (buffer.getInt(buffer.position()) == 0) end = true;
+            return !end;
+        }
+
+        @Override
+        public PAdic next(){
+            if (!hasNext()) throw new NoSuchElementException();
+            int size = RECORD_HEADER + 8 * Math.abs(buffer.getInt(buffer.position() + 12));
+            try {
+                if (!fill(size)) throw new EOFException("Truncated PAdic store");
+            }
+            catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            PAdic a = decode(buffer, buffer.position());
+            buffer.position(buffer.position() + size);
+            return a;
+        }
+
+        /**
+         * @return remaining records as a sequential stream
+         */
+        public Stream<PAdic> stream(){
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read-only random access view of a memory-mapped store file. Fields of the
+     * records are read directly from the mapping, so they can be inspected without
+     * materializing PAdic objects. All methods use absolute reads only, so a view
+     * can be shared by threads.
+     * IMPLEMENTATION:
+     * File is mapped in segments of segmentSize bytes, each extended by overlap bytes
+     * into the next one, so any read of at most overlap bytes lies in a single segment.
+     * Records are addressed by long offsets, so files are not limited to 2GB.
+     * Longer records crossing a segment boundary are read through the channel.
+     */
+    public static final class View implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer[] segments; //< little-endian
+        private final int segmentSize;
+        private final int overlap;
+        private final long indexOffset;
+        private final int size;
+
+        private View(Path path) throws IOException {
+            this(path, SEGMENT, BUFFER);
+        }
+
+        /**
+         * @param segmentSize number of bytes addressed by one mapped segment
+         * @param overlap number of bytes each segment extends into the next one, at least RECORD_HEADER
+         */
+        View(Path path, int segmentSize, int overlap) throws IOException {
+            if (overlap < RECORD_HEADER || segmentSize <= 0) throw new IllegalArgumentException("Wrong segment size " + segmentSize + " or overlap " + overlap);
+            this.segmentSize = segmentSize;
+            this.overlap = overlap;
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long length = channel.size();
+                if (length < HEADER + RECORD_HEADER + TRAILER) throw new IOException("Not a PAdic store");
+                long count = (length + segmentSize - 1) / segmentSize;
+                if (count > Integer.MAX_VALUE) throw new IOException("PAdic store too large to map: " + length + " bytes");
+                segments = new ByteBuffer[(int) count];
+                for (int k = 0; k < segments.length; k++){
+                    long start = (long) k * segmentSize;
+                    long end = Math.min(length, start + segmentSize + overlap);
+                    segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                if (getInt(0) != MAGIC) throw new IOException("Not a PAdic store");
+                if (getInt(4) != VERSION) throw new IOException("Unsupported PAdic store version: " + getInt(4));
+                long index = getLong(length - TRAILER);
+                long records = getLong(length - TRAILER + 8);
+                if (records < 0 || records > Integer.MAX_VALUE || index < HEADER || index + 8 * records != length - TRAILER) {
+                    throw new IOException("Corrupted PAdic store index");
+                }
+                indexOffset = index;
+                size = (int) records;
+            }
+            catch (IOException | RuntimeException e){
+                channel.close();
+                throw e;
+            }
+        }
+
+        private int getInt(long offset){
+            return segments[(int) (offset / segmentSize)].getInt((int) (offset % segmentSize));
+        }
+
+        private long getLong(long offset){
+            return segments[(int) (offset / segmentSize)].getLong((int) (offset % segmentSize));
+        }
+
+        /**
+         * @return little-endian buffer with length bytes starting at given offset
+         */
+        private ByteBuffer slice(long offset, int length){
+            ByteBuffer segment = segments[(int) (offset / segmentSize)];
+            int start = (int) (offset % segmentSize);
+            if (start + length <= segment.limit()) return segment.slice(start, length).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer copy = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                while (copy.hasRemaining()){
+                    if (channel.read(copy, offset + copy.position()) < 0) throw new EOFException("Truncated PAdic store");
+                }
+            }
+            catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            return copy.flip();
+        }
+
+        public int size(){
+            return size;
+        }
+
+        private long offset(int i){
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+            return getLong(indexOffset + 8L * i);
+        }
+
+        private int recordSize(long offset){
+            return RECORD_HEADER + 8 * Math.abs(getInt(offset + 12));
+        }
+
+        public PAdic get(int i){
+            long offset = offset(i);
+            return decode(slice(offset, recordSize(offset)), 0);
+        }
+
+        public int getP(int i){
+            return getInt(offset(i));
+        }
+
+        public int getVal(int i){
+            return getInt(offset(i) + 4);
+        }
+
+        public int getAbsPrecision(int i){
+            return getInt(offset(i) + 8);
+        }
+
+        /**
+         * @return sign of the unit part of i-th number
+         */
+        public int signum(int i){
+            return Integer.signum(getInt(offset(i) + 12));
+        }
+
+        /**
+         * @return number of limbs of the absolute value of the unit part of i-th number
+         */
+        public int limbCount(int i){
+            return Math.abs(getInt(offset(i) + 12));
+        }
+
+        /**
+         * @return k-th limb (the least significant first) of the absolute value of
+         * the unit part of i-th number
+         */
+        public long limb(int i, int k){
+            long offset = offset(i);
+            int limbs = Math.abs(getInt(offset + 12));
+            if (k < 0 || k >= limbs) throw new IndexOutOfBoundsException("Limb " + k + " out of bounds for length " + limbs);
+            return getLong(offset + RECORD_HEADER + 8L * k);
+        }
+
+        /**
+         * @return read-only little-endian buffer holding the record of i-th number
+         */
+        public ByteBuffer record(int i){
+            long offset = offset(i);
+            return slice(offset, recordSize(offset)).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @return all numbers, decoded in parallel for large views
+         */
+        public PAdic[] toArray(){
+            IntStream indices = IntStream.range(0, size);
+            if (size >= 1 << 14) indices = indices.parallel();
+            return indices.mapToObj(this::get).toArray(PAdic[]::new);
+        }
+
+        public Stream<PAdic> stream(){
+            return IntStream.range(0, size).mapToObj(this::get);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Vector of p-adic numbers of the same Q_p stored in packed form: valuations in
+ * an int array and unit parts modulo p^N in one flat array of limbs (see LimbModulus),
+ * where N is the precision at the time of creation. Absolute precision of every element
+ * (see PAdic.getAbsPrecision) is kept and propagated as in PAdic. Operations are elementwise or
+ * reductions and return new vectors, checks of the prime and the precision are done
+ * once per operation instead of once per element.
+ * IMPLEMENTATION:
+ * Elements are processed in chunks, every chunk has its own scratch buffers, so
+ * apart from the result nothing is allocated per element. For large vectors chunks
+ * are processed in parallel on the common fork-join pool. Division inverts all
+ * elements of a chunk at once using Montgomery's trick (one modular inversion per chunk).
+ */
+public final class PAdicVector {
+    private static final int CHUNK = 1 << 10; //< elements per chunk
+    private static final int PARALLEL_THRESHOLD = 1 << 14; //< lowest size * limbs processed in parallel
+
+    private final int p;
+    private final LimbModulus mod;
+    private final int limbs;
+    private final int size;
+    private final int[] val; //< valuations, Integer.MAX_VALUE for zeros
+    private final int[] prec; //< absolute precisions, Integer.MAX_VALUE for exact numbers
+    private final long[] units; //< unit part of element i is units[i * limbs .. (i + 1) * limbs)
+
+    /**
+     * Constructs zero vector
+     * @param p prime
+     * @param size size
+     */
+    public PAdicVector(int p, int size){
+        this(p, PAdicField.of(p).limbModulus(PAdic.getPrecision()), size);
+    }
+
+    private PAdicVector(int p, LimbModulus mod, int size){
+        this.p = p;
+        this.mod = mod;
+        this.limbs = mod.limbs();
+        this.size = size;
+        this.val = new int[size];
+        this.prec = new int[size];
+        this.units = new long[size * limbs];
+        Arrays.fill(val, Integer.MAX_VALUE);
+        Arrays.fill(prec, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs vector of given numbers
+     * @param a p-adic numbers
+     * @param p prime
+     */
+    public PAdicVector(PAdic[] a, int p){
+        this(p, a.length);
+        forEachChunk((k, from, to) -> {
+            for (int i = from; i < to; i++) k.set(i, a[i]);
+        });
+    }
+
+    public int getP(){
+        return p;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int getPrecision(){
+        return mod.getN();
+    }
+
+    public PAdic get(int i){
+        return new Kernel().get(i);
+    }
+
+    public PAdic[] toArray(){
+        PAdic[] out = new PAdic[size];
+        forEachChunk((k, from, to) -> {
+            for (int i = from; i < to; i++) out[i] = k.get(i);
+        });
+        return out;
+    }
+
+    private void check(PAdicVector a){
+        if (p != a.p) throw new FieldError(p, a.p);
+        if (mod != a.mod) throw new RuntimeException("Precision mismatch: " + mod.getN() + " and " + a.mod.getN());
+        if (size != a.size) throw new RuntimeException("Size mismatch: " + size + " and " + a.size);
+    }
+
+    public PAdicVector add(PAdicVector a){
+        check(a);
+        PAdicVector out = new PAdicVector(p, mod, size);
+        forEachChunk((k, from, to) -> {
+            for (int i = from; i < to; i++){
+                k.load(this, i, k.x);
+                k.load(a, i, k.y);
+                out.prec[i] = PAdic.sumPrecision(val[i], prec[i], a.val[i], a.prec[i], mod.getN());
+                out.val[i] = mod.addShifted(k.x, val[i], k.y, a.val[i], k.tmp, k.scratch);
+                if (out.val[i] >= out.prec[i]) out.val[i] = Integer.MAX_VALUE; //digits below precision cancelled
+                k.store(out, i, k.x);
+            }
+        });
+        return out;
+    }
+
+    public PAdicVector neg(){
+        PAdicVector out = new PAdicVector(p, mod, size);
+        forEachChunk((k, from, to) -> {
+            for (int i = from; i < to; i++){
+                out.prec[i] = prec[i];
+                if (val[i] == Integer.MAX_VALUE) continue;
+                k.load(this, i, k.x);
+                mod.neg(k.x, k.x);
+                k.store(out, i, k.x);
+                out.val[i] = val[i];
+            }
+        });
+        return out;
+    }
+
+    public PAdicVector sub(PAdicVector a){
+        return add(a.neg());
+    }
+
+    public PAdicVector mul(PAdicVector a){
+        check(a);
+        PAdicVector out = new PAdicVector(p, mod, size);
+        forEachChunk((k, from, to) -> {
+            for (int i = from; i < to; i++){
+                out.prec[i] = PAdic.productPrecision(val[i], prec[i], a.val[i], a.prec[i], mod.getN());
+                if (val[i] == Integer.MAX_VALUE || a.val[i] == Integer.MAX_VALUE) continue;
+                k.load(this, i, k.x);
+                k.load(a, i, k.y);
+                mod.mul(k.x, k.y, k.x, k.scratch);
+                k.store(out, i, k.x);
+                out.val[i] = val[i] + a.val[i];
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Multiplies every element by c
+     * @param c p-adic number
+     * @return scaled vector
+     */
+    public PAdicVector mul(PAdic c){
+        if (p != c.getP()) throw new FieldError(p, c.getP());
+        PAdicVector out = new PAdicVector(p, mod, size);
+        if (c.getVal() == Integer.MAX_VALUE && c.isExact()) return out;
+        long[] rep = new long[limbs];
+        if (c.getVal() != Integer.MAX_VALUE) mod.toRep(c.num(), rep);
+        forEachChunk((k, from, to) -> {
+            for (int i = from; i < to; i++){
+                out.prec[i] = PAdic.productPrecision(val[i], prec[i], c.getVal(), c.getAbsPrecision(), mod.getN());
+                if (val[i] == Integer.MAX_VALUE || c.getVal() == Integer.MAX_VALUE) continue;
+                k.load(this, i, k.x);
+                mod.mul(k.x, rep, k.x, k.scratch);
+                k.store(out, i, k.x);
+                out.val[i] = val[i] + c.getVal();
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Inverts all elements, using Montgomery's trick in every chunk
+     * @return vector of inverses
+     */
+    public PAdicVector inv(){
+        PAdicVector out = new PAdicVector(p, mod, size);
+        forEachChunk((k, from, to) -> {
+            long[] prefix = new long[(to - from) * limbs];
+            for (int i = from; i < to; i++){
+                if (val[i] == Integer.MAX_VALUE) throw new RuntimeException("Division by zero");
+                int offset = (i - from) * limbs;
+                if (i == from) System.arraycopy(units, i * limbs, prefix, 0, limbs);
+                else {
+                    k.load(this, i, k.y);
+                    System.arraycopy(prefix, offset - limbs, k.x, 0, limbs);
+                    mod.mul(k.x, k.y, k.x, k.scratch);
+                    System.arraycopy(k.x, 0, prefix, offset, limbs);
+                }
+            }
+            if (to == from) return;
+            System.arraycopy(prefix, (to - from - 1) * limbs, k.x, 0, limbs);
+            long[] inv = new long[limbs];
+            mod.inverse(k.x, inv, k.tmp, k.scratch);
+            for (int i = to - 1; i > from; i--){
+                System.arraycopy(prefix, (i - 1 - from) * limbs, k.y, 0, limbs);
+                mod.mul(inv, k.y, k.y, k.scratch);
+                k.store(out, i, k.y);
+                out.val[i] = -val[i];
+                out.prec[i] = PAdic.inversePrecision(val[i], prec[i], mod.getN());
+                k.load(this, i, k.y);
+                mod.mul(inv, k.y, inv, k.scratch);
+            }
+            k.store(out, from, inv);
+            out.val[from] = -val[from];
+            out.prec[from] = PAdic.inversePrecision(val[from], prec[from], mod.getN());
+        });
+        return out;
+    }
+
+    public PAdicVector div(PAdicVector a){
+        check(a);
+        return mul(a.inv());
+    }
+
+    /**
+     * @return sum of all elements
+     */
+    public PAdic sum(){
+        return reduce(null);
+    }
+
+    /**
+     * @return dot product of this and a
+     */
+    public PAdic dot(PAdicVector a){
+        check(a);
+        return reduce(a);
+    }
+
+    /**
+     * Sums this[i] (times a[i] if a is not null). Every chunk is summed separately,
+     * then partial sums are added.
+     */
+    private PAdic reduce(PAdicVector a){
+        int n = mod.getN();
+        int chunks = Math.max(1, (size + CHUNK - 1) / CHUNK);
+        long[] partial = new long[chunks * limbs];
+        int[] partialVal = new int[chunks];
+        int[] partialPrec = new int[chunks];
+        Arrays.fill(partialVal, Integer.MAX_VALUE);
+        Arrays.fill(partialPrec, Integer.MAX_VALUE);
+        forEachChunk((k, from, to) -> {
+            int c = from / CHUNK;
+            long[] acc = new long[limbs];
+            int accVal = Integer.MAX_VALUE, accPrec = Integer.MAX_VALUE;
+            for (int i = from; i < to; i++){
+                int v = val[i], termPrec = prec[i];
+                if (a != null) {
+                    termPrec = PAdic.productPrecision(v, termPrec, a.val[i], a.prec[i], n);
+                    v = v == Integer.MAX_VALUE || a.val[i] == Integer.MAX_VALUE ? Integer.MAX_VALUE : v + a.val[i];
+                }
+                accPrec = PAdic.sumPrecision(accVal, accPrec, v, termPrec, n);
+                if (v == Integer.MAX_VALUE) continue;
+                k.load(this, i, k.y);
+                if (a != null) {
+                    k.load(a, i, k.x);
+                    mod.mul(k.y, k.x, k.y, k.scratch);
+                }
+                accVal = mod.addShifted(acc, accVal, k.y, v, k.tmp, k.scratch);
+            }
+            System.arraycopy(acc, 0, partial, c * limbs, limbs);
+            partialVal[c] = accVal;
+            partialPrec[c] = accPrec;
+        });
+        Kernel k = new Kernel();
+        long[] acc = new long[limbs];
+        int accVal = Integer.MAX_VALUE, accPrec = Integer.MAX_VALUE;
+        for (int c = 0; c < chunks; c++){
+            System.arraycopy(partial, c * limbs, k.y, 0, limbs);
+            accPrec = PAdic.sumPrecision(accVal, accPrec, partialVal[c], partialPrec[c], n);
+            accVal = mod.addShifted(acc, accVal, k.y, partialVal[c], k.tmp, k.scratch);
+        }
+        PAdic out = accVal == Integer.MAX_VALUE ? new PAdic(0, p) : new PAdic(mod.fromRep(acc, k.scratch), accVal, p);
+        return accPrec == Integer.MAX_VALUE ? out : out.withPrecision(accPrec);
+    }
+
+    private interface ChunkTask {
+        void apply(Kernel k, int from, int to);
+    }
+
+    /**
+     * Runs task on all chunks, in parallel for large vectors
+     */
+    private void forEachChunk(ChunkTask task){
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        if (chunks <= 1 || (long) size * limbs < PARALLEL_THRESHOLD) {
+            Kernel k = new Kernel();
+            for (int c = 0; c < chunks; c++) task.apply(k, c * CHUNK, Math.min(size, (c + 1) * CHUNK));
+            return;
+        }
+        IntStream.range(0, chunks).parallel().forEach(c -> task.apply(new Kernel(), c * CHUNK, Math.min(size, (c + 1) * CHUNK)));
+    }
+
+    /**
+     * Scratch buffers of a single chunk
+     */
+    private final class Kernel {
+        final long[] x = new long[limbs];
+        final long[] y = new long[limbs];
+        final long[] tmp = new long[limbs];
+        final long[] scratch = new long[limbs + 2];
+
+        void load(PAdicVector v, int i, long[] out){
+            System.arraycopy(v.units, i * limbs, out, 0, limbs);
+        }
+
+        void store(PAdicVector v, int i, long[] in){
+            System.arraycopy(in, 0, v.units, i * limbs, limbs);
+        }
+
+        void set(int i, PAdic a){
+            if (p != a.getP()) throw new FieldError(p, a.getP());
+            prec[i] = a.getAbsPrecision();
+            if (a.getVal() == Integer.MAX_VALUE) { val[i] = Integer.MAX_VALUE; return; }
+            if (a.isSmall()) mod.toRep(a.smallNum(), x, scratch);
+            else mod.toRep(a.num(), x);
+            val[i] = mod.normalize(x, a.getVal());
+            store(PAdicVector.this, i, x);
+        }
+
+        PAdic get(int i){
+            PAdic out;
+            if (val[i] == Integer.MAX_VALUE) out = new PAdic(0, p);
+            else {
+                load(PAdicVector.this, i, x);
+                out = new PAdic(mod.fromRep(x, scratch), val[i], p);
+            }
+            return prec[i] == Integer.MAX_VALUE ? out : out.withPrecision(prec[i]);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import Poly.Poly;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds all roots of polynomials of Z[X] in Q_p.
+ * IMPLEMENTATION:
+ * Roots congruent to r mod p^k are roots x = r + p^k t of f, where t is
+ * a root in Z_p of h(t) = f(r + p^k t) / p^c (c is chosen so that h is
+ * non-zero mod p). Roots of h mod p are the only candidates for the next
+ * digit, so branches die as soon as h mod p has no roots and there are at
+ * most deg(f) branches on every level. A simple root of h mod p is lifted
+ * with Newton's method (NewtonSolver), a multiple one is refined further
+ * with h(j + pt) / p^c'. Branches are explored in parallel on the common
+ * fork-join pool. All the computation is done on exact BigIntegers.
+ */
+public final class RootFinder {
+    private RootFinder(){}
+
+    private static final class Search {
+        final int prime;
+        final int maxDepth; //< multiple roots known modulo p^maxDepth are reported as they are
+        final boolean reportClusters;
+        final PAdicMathContext context; //< context of the caller, bound in worker threads
+        volatile boolean gaveUp = false;
+
+        Search(int prime, int maxDepth, boolean reportClusters){
+            this.prime = prime;
+            this.maxDepth = maxDepth;
+            this.reportClusters = reportClusters;
+            this.context = PAdicMathContext.current();
+        }
+    }
+
+    private static final class Node extends RecursiveTask<List<PAdic>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final BigInteger[] h;
+        private final BigInteger r;
+        private final int k;
+
+        Node(Search search, BigInteger[] h, BigInteger r, int k){
+            this.search = search;
+            this.h = h;
+            this.r = r;
+            this.k = k;
+        }
+
+        @Override
+        protected List<PAdic> compute() {
+            return search.context.call(this::explore);
+        }
+
+        /**
+         * Refines the branch until it splits; a single candidate digit is followed
+         * in place, so only real branching forks new tasks.
+         */
+        private List<PAdic> explore(){
+            int p = search.prime;
+            PAdicField field = PAdicField.of(p);
+            List<PAdic> out = new ArrayList<PAdic>();
+            BigInteger[] h = this.h;
+            BigInteger r = this.r;
+            int k = this.k;
+            while (true) {
+                long[] hp = new long[h.length];
+                for (int i = 0; i < h.length; i++) hp[i] = h[i].mod(field.getBigP()).longValue();
+                List<Node> children = new ArrayList<Node>();
+                for (int j = 0; j < p; j++){
+                    long value = 0, derivative = 0;
+                    for (int i = hp.length - 1; i >= 0; i--){
+                        derivative = (derivative * j + value) % p;
+                        value = (value * j + hp[i]) % p;
+                    }
+                    if (value != 0) continue;
+                    BigInteger next = r.add(field.pow(k).multiply(BigInteger.valueOf(j)));
+                    if (derivative != 0) {
+                        PAdic t = NewtonSolver.lift(new Poly(h), j, p);
+                        out.add(new PAdic(r, p).add(t.mul(new PAdic(BigInteger.ONE, k, p))));
+                    }
+                    else if (k + 1 >= search.maxDepth) {
+                        search.gaveUp = true;
+                        if (search.reportClusters) out.add(new PAdic(next, p));
+                    }
+                    else children.add(new Node(search, shift(h, j, p), next, k + 1));
+                }
+                if (children.size() == 1) {
+                    Node child = children.get(0);
+                    h = child.h;
+                    r = child.r;
+                    k = child.k;
+                    continue;
+                }
+                if (!children.isEmpty()) {
+                    invokeAll(children);
+                    for (Node child : children) out.addAll(child.join());
+                }
+                return out;
+            }
+        }
+    }
+
+    /**
+     * Returns h(j + pt) / p^c, where c is the highest power of p dividing all the coefficients
+     */
+    private static BigInteger[] shift(BigInteger[] h, long j, int p){
+        PAdicField field = PAdicField.of(p);
+        BigInteger[] a = h.clone();
+        int n = a.length - 1;
+        BigInteger bigJ = BigInteger.valueOf(j);
+        if (j != 0) {
+            for (int i = 0; i < n; i++){
+                for (int m = n - 1; m >= i; m--) a[m] = a[m].add(a[m + 1].multiply(bigJ));
+            }
+        }
+        for (int i = 1; i <= n; i++) a[i] = a[i].multiply(field.pow(i));
+        return divideContent(a, p);
+    }
+
+    private static BigInteger[] divideContent(BigInteger[] a, int p){
+        PAdicField field = PAdicField.of(p);
+        int c = Integer.MAX_VALUE;
+        for (BigInteger x : a){
+            if (x.signum() == 0) continue;
+            c = Math.min(c, field.valuation(x));
+            if (c == 0) return a;
+        }
+        if (c == 0 || c == Integer.MAX_VALUE) return a;
+        BigInteger power = field.pow(c);
+        for (int i = 0; i < a.length; i++) a[i] = a[i].divide(power);
+        return a;
+    }
+
+    private static BigInteger[] coefficients(Poly f){
+        if (f.isZero()) throw new RuntimeException("Every p-adic number is a root of zero polynomial");
+        BigInteger[] c = new BigInteger[f.getDeg() + 1];
+        for (int i = 0; i <= f.getDeg(); i++) c[i] = f.getCoeff(i);
+        return c;
+    }
+
+    private static List<PAdic> run(Search search, BigInteger[] h, BigInteger r, int k){
+        Node root = new Node(search, h, r, k);
+        if (ForkJoinPool.commonPool().getParallelism() <= 1) return root.compute();
+        return ForkJoinPool.commonPool().invoke(root);
+    }
+
+    /**
+     * Returns all roots of f in Z_p. Multiple roots are reported once,
+     * with PAdic.getPrecision() digits.
+     * @param f polynomial
+     * @param prime prime
+     * @return roots
+     */
+    public static List<PAdic> integralRoots(Poly f, int prime){
+        Search search = new Search(prime, PAdic.getPrecision(), true);
+        return run(search, divideContent(coefficients(f), prime), BigInteger.ZERO, 0);
+    }
+
+    /**
+     * Returns all roots of f in Q_p. Roots outside of Z_p are inverses
+     * of roots in pZ_p of reversed polynomial x^n f(1/x).
+     * @param f polynomial
+     * @param prime prime
+     * @return roots
+     */
+    public static List<PAdic> roots(Poly f, int prime){
+        List<PAdic> out = integralRoots(f, prime);
+        BigInteger[] c = coefficients(f);
+        BigInteger[] reversed = new BigInteger[c.length];
+        for (int i = 0; i < c.length; i++) reversed[i] = c[c.length - 1 - i];
+        Search search = new Search(prime, PAdic.getPrecision(), true);
+        for (PAdic y : run(search, shift(reversed, 0, prime), BigInteger.ZERO, 1)){
+            if (y.getVal() != Integer.MAX_VALUE) out.add(y.inv());
+        }
+        return out;
+    }
+
+    /**
+     * Returns arbitrary root of f in Z_p, giving up on multiple roots not
+     * separated modulo p^maxDepth.
+     * @return root or null in case of giving up
+     * @throws RootDoesntExist if f has no roots in Z_p
+     */
+    static PAdic findRoot(Poly f, int maxDepth, int prime){
+        Search search = new Search(prime, maxDepth, false);
+        List<PAdic> roots = run(search, divideContent(coefficients(f), prime), BigInteger.ZERO, 0);
+        if (!roots.isEmpty()) return roots.get(0);
+        if (!search.gaveUp) throw new RootDoesntExist(f, prime);
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Thread-safe cache of Teichmuller representatives. For every prime only
+ * the table of the highest precision computed so far is kept; requests
+ * with lower precision are served by truncating it. The number of cached
+ * primes is bounded, least recently used tables are evicted first.
+ */
+final class TeichmullerCache {
+    private static final int MAX_PRIMES = 32;
+    private static final int PARALLEL_THRESHOLD = 1 << 14; //< p * precision above which table is built in parallel
+
+    private static final class Table {
+        final int precision;
+        final BigInteger[] reps; //< reps[a] = w(a) mod p^precision
+
+        Table(int precision, BigInteger[] reps){
+            this.precision = precision;
+            this.reps = reps;
+        }
+    }
+
+    private static final Map<Integer, Table> tables = new LinkedHashMap<Integer, Table>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Table> eldest) {
+            return size() > MAX_PRIMES;
+        }
+    };
+
+    private TeichmullerCache(){}
+
+    /**
+     * @param p prime
+     * @param precision number of digits
+     * @return fresh array of Teichmuller representatives, i-th congruent to i mod p
+     */
+    static PAdic[] get(int p, int precision){
+        Table table;
+        synchronized (tables) {
+            table = tables.get(p);
+        }
+        if (table == null || table.precision < precision) {
+            table = new Table(precision, build(p, precision));
+            synchronized (tables) {
+                Table current = tables.get(p);
+                if (current == null || current.precision < precision) tables.put(p, table);
+            }
+        }
+        BigInteger mod = PAdicField.of(p).pow(precision);
+        PAdic[] out = new PAdic[p];
+        for (int i = 0; i < p; i++){
+            BigInteger rep = table.precision == precision ? table.reps[i] : table.reps[i].mod(mod);
+            out[i] = new PAdic(rep, 0, p);
+        }
+        return out;
+    }
+
+    private static BigInteger[] build(int p, int precision){
+        BigInteger[] reps = new BigInteger[p];
+        IntStream residues = IntStream.range(0, p);
+        if ((long) p * precision >= PARALLEL_THRESHOLD) residues = residues.parallel();
+        residues.forEach(a -> reps[a] = lift(a, p, precision));
+        return reps;
+    }
+
+    /**
+     * Lifts a to the root w(a) of x^p - x congruent to a with Newton's method,
+     * x_{n+1} = x_n - (x_n^p - x_n) / (p x_n^(p-1) - 1), doubling number of
+     * correct digits in every step. Powers are computed with modPow, so cost
+     * of a step is logarithmic in p.
+     */
+    private static BigInteger lift(int a, int p, int precision){
+        if (a <= 1) return BigInteger.valueOf(a);
+        PAdicField field = PAdicField.of(p);
+        BigInteger bigP = field.getBigP();
+        BigInteger x = BigInteger.valueOf(a);
+        int[] steps = PAdic.newtonSteps(precision);
+        for (int i = 1; i < steps.length; i++){
+            BigInteger mod = field.pow(steps[i]);
+            BigInteger power = x.modPow(bigP.subtract(BigInteger.ONE), mod);
+            BigInteger fx = power.multiply(x).subtract(x);
+            BigInteger dfx = power.multiply(bigP).subtract(BigInteger.ONE);
+            x = x.subtract(fx.multiply(dfx.modInverse(mod))).mod(mod);
+        }
+        return x;
+    }
+}
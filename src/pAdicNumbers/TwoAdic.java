@@ -0,0 +1,105 @@
+/*  The MIT License (MIT)
+
+Copyright © 2021 <Maciej Raczuk>
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the “Software”),
+to deal in the Software without restriction, including without limitation the
+rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is furnished
+to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package pAdicNumbers;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic specific to Q_2, used by PAdic and PAdicField whenever p = 2.
+ * IMPLEMENTATION:
+ * Powers of 2 are shifts, so valuation is the lowest set bit, reduction modulo
+ * 2^k is masking and digits are bits, there is no division at all. Inverses
+ * are lifted with Newton's iteration x' = x(2 - ax), which works modulo 2^64 on
+ * longs without any reduction and then continues on BigIntegers from 64
+ * correct bits, skipping the first six steps of the general algorithm.
+ */
+final class TwoAdic {
+    private TwoAdic(){}
+
+    /**
+     * @return 2^k - 1
+     */
+    static BigInteger mask(int k){
+        return BigInteger.ONE.shiftLeft(k).subtract(BigInteger.ONE);
+    }
+
+    /**
+     * @return n mod 2^k (non-negative)
+     */
+    static BigInteger reduce(BigInteger n, int k){
+        if (n.signum() >= 0 && n.bitLength() <= k) return n;
+        return n.and(mask(k));
+    }
+
+    /**
+     * @return a * b mod 2^k, for k < 64 and non-negative a, b
+     */
+    static long mulMod(long a, long b, int k){
+        return a * b & ((1L << k) - 1);
+    }
+
+    /**
+     * @return inverse of odd a modulo 2^64
+     */
+    static long inverse64(long a){
+        //a * a = 1 mod 8, every step doubles the number of correct bits: 3, 6, 12, 24, 48, 96
+        long x = a;
+        for (int i = 0; i < 5; i++) x *= 2 - a * x;
+        return x;
+    }
+
+    /**
+     * @return inverse of odd a modulo 2^n (non-negative)
+     */
+    static BigInteger inverse(BigInteger a, int n){
+        long start = inverse64(a.longValue());
+        if (n <= 63) return BigInteger.valueOf(start & ((1L << n) - 1));
+        BigInteger x = new BigInteger(Long.toUnsignedString(start));
+        BigInteger two = BigInteger.TWO;
+        for (int k = 64; k < n; ){
+            k = (int) Math.min(2L * k, n);
+            BigInteger t = reduce(a, k).multiply(x);
+            x = reduce(x.multiply(two.subtract(reduce(t, k))), k);
+        }
+        return x;
+    }
+
+    /**
+     * Writes bits of n mod 2^count to out[from], ..., out[from + count - 1]
+     */
+    static void digits(BigInteger n, int[] out, int from, int count){
+        n = reduce(n, count);
+        int length = n.bitLength();
+        for (int i = n.getLowestSetBit(); i >= 0 && i < length; i++) out[from + i] = n.testBit(i) ? 1 : 0;
+    }
+
+    /**
+     * @return number with binary digits digits[from], ..., digits[to - 1], the most significant first
+     */
+    static BigInteger fromDigits(byte[] digits, int from, int to){
+        int count = to - from;
+        byte[] bytes = new byte[count / 8 + 1];
+        for (int i = 0; i < count; i++){
+            if (digits[to - 1 - i] != 0) bytes[bytes.length - 1 - i / 8] |= (byte) (1 << (i % 8));
+        }
+        return new BigInteger(1, bytes);
+    }
+}